@@ -1,5 +1,6 @@
 package uk.gov.dwp.uc.dip.mappingreader;
 
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -9,14 +10,20 @@ import java.util.List;
 class SystemColumns {
 
     static List<TechnicalMapping> updateOrAddSystemColumnMappings(List<TechnicalMapping> rulesForTable){
-        if(rulesForTable.size()==0)
+        // system columns come from the table's own collection, not from the ones its fields are looked up in
+        List<TechnicalMapping> ownRules = new ArrayList<>();
+        for(TechnicalMapping rule : rulesForTable){
+            if(!rule.isLookup())
+                ownRules.add(rule);
+        }
+        if(ownRules.size()==0)
             return rulesForTable;
         // Get some common values
-        TechnicalMapping existingRule = rulesForTable.get(0);
+        TechnicalMapping existingRule = ownRules.get(0);
 
         // Create and add system rules
         for(SystemColumnsEnum systemColumnsEnum : SystemColumnsEnum.values()){
-            if (!mappingExistsForColumn(rulesForTable, systemColumnsEnum.destinationFieldName)) {
+            if (!mappingExistsForColumn(ownRules, systemColumnsEnum.destinationFieldName)) {
 
                 TechnicalMapping tm = new TechnicalMapping();
                 tm.sourceDatabase = existingRule.sourceDatabase;
@@ -1,5 +1,6 @@
 package uk.gov.dwp.uc.dip.mappingreader;
 
+import uk.gov.dwp.uc.dip.schemagenerator.common.Tuple;
 import uk.gov.dwp.uc.dip.schemagenerator.datachecks.DataCheckEnum;
 import java.util.*;
 import static uk.gov.dwp.uc.dip.mappingreader.MappingTypeEnum.SOURCE_TYPE_CUSTOM;
@@ -8,6 +9,7 @@ import static uk.gov.dwp.uc.dip.mappingreader.MappingTypeEnum.SOURCE_TYPE_CUSTOM
  * Helper class to represent a rule/row in the technical mapping
  */
 public class TechnicalMapping {
+    private final static String LOOKUP = "lookup";
 
     int sourceFileLineNo;
     String sourceDatabase;
@@ -23,7 +25,7 @@ public class TechnicalMapping {
     public String function="";
 
     /**
-     * List of checks as key=value, separated by comma
+     * List of checks and meta as key or key=value, separated by space
      */
     public String dataChecksString ="";
 
@@ -101,15 +103,92 @@ public class TechnicalMapping {
     }
 
     /**
-     * Data checks are provided as space separated list
+     * Meta is provided in the same space separated list as data checks, as key or key=value
+     * @return pairs of lower case key and value, value is empty when only key is provided
+     */
+    public Map<String,String> getMeta(){
+        Map<String,String> meta = new LinkedHashMap<>();
+        for(String token : this.dataChecksString.trim().split("\\s+")) {
+            if(token.isEmpty())
+                continue;
+            int separator = token.indexOf('=');
+            if(separator < 0)
+                meta.put(token.toLowerCase(), "");
+            else
+                meta.put(token.substring(0, separator).toLowerCase(), token.substring(separator + 1));
+        }
+        return meta;
+    }
+
+    /**
+     * Lookup rule reads its field from a document of its own collection, the one which key equals a path of the
+     * document the target table is populated from. Both are given by meta lookup=path:key
+     * @return true when the rule is a lookup
+     */
+    public boolean isLookup(){
+        return getMeta().containsKey(LOOKUP);
+    }
+
+    /**
+     * @return pairs of <path of the document the target table is populated from, key of the looked up document>
+     */
+    public Tuple<String,String> getLookup(){
+        String lookup = getMeta().getOrDefault(LOOKUP, "");
+        int separator = lookup.indexOf(':');
+        if(separator <= 0 || separator == lookup.length() - 1)
+            throw new IllegalStateException(String.format("%s has to be looked up by lookup=path:key", this));
+        return new Tuple<>(lookup.substring(0, separator), lookup.substring(separator + 1));
+    }
+
+    /**
+     * @return copy of the rule reading another path into another target field, without checks and meta
+     */
+    TechnicalMapping copy(String jsonPath, String targetFieldName){
+        TechnicalMapping tm = new TechnicalMapping();
+        tm.sourceFileLineNo = sourceFileLineNo;
+        tm.sourceDatabase = sourceDatabase;
+        tm.sourceCollection = sourceCollection;
+        tm.targetTableName = targetTableName;
+        tm.targetFieldName = targetFieldName;
+        tm.jsonPath = jsonPath;
+        tm.sourceType = sourceType;
+        tm.targetType = targetType;
+        tm.userDefinedSourceType = userDefinedSourceType;
+        tm.userDefinedTargetType = userDefinedTargetType;
+        tm.format = format;
+        tm.function = "";
+        return tm;
+    }
+
+    public String getSourceDatabase(){
+        return sourceDatabase;
+    }
+
+    /**
+     * Data checks are provided as space separated list, checks taking an argument as check=argument
+     * or check(argument)
      * @return key value pair of data checks
      */
     public Set<DataCheckEnum> getDataChecks(){
         Set<DataCheckEnum> dataChecks = new LinkedHashSet<>();
-        String[] names = this.dataChecksString.split(" ");
-        for(String name : names) {
-            dataChecks.add(DataCheckEnum.getByTypeName(name));
+        for(String name : getMeta().keySet()) {
+            dataChecks.add(DataCheckEnum.getByTypeName(name.replaceFirst("\\(.*\\)$", "")));
         }
         return dataChecks;
     }
+
+    /**
+     * @return argument of the data check e.g. 0:100 of range=0:100 or range(0:100)
+     */
+    public String getDataCheckArgument(DataCheckEnum dataCheck){
+        String argument = getMeta().getOrDefault(dataCheck.getTypeName(), "");
+        for(String token : this.dataChecksString.trim().split("\\s+")) {
+            if(token.toLowerCase().startsWith(dataCheck.getTypeName() + "(") && token.endsWith(")"))
+                argument = token.substring(dataCheck.getTypeName().length() + 1, token.length() - 1);
+        }
+        if(argument.isEmpty())
+            throw new IllegalStateException(String.format("%s has to be checked by %s=argument"
+                    , this, dataCheck.getTypeName()));
+        return argument;
+    }
 }
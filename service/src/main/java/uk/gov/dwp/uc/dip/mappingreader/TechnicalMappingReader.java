@@ -73,13 +73,53 @@ public abstract class TechnicalMappingReader {
     public Set<String> getSourceDatabases(String targetTable){
         Set<String> res = new HashSet<>();
         for(TechnicalMapping rule: rules) {
-            if(rule.targetTableName.equals(targetTable))
+            if(rule.targetTableName.equals(targetTable) && !rule.isLookup())
                 res.add(rule.sourceDatabase);
         }
         return res;
     }
 
 
+    /**
+     *
+     * @return all databases used by the technical mapping to populate target tables from
+     */
+    public Set<String> getSourceDatabases(){
+        Set<String> res = new HashSet<>();
+        for(TechnicalMapping rule: rules) {
+            if(!rule.isLookup())
+                res.add(rule.sourceDatabase);
+        }
+        return res;
+    }
+
+    /**
+     *
+     * @return all collections of the source database used by the technical mapping to populate target tables from
+     */
+    public Set<String> getSourceCollections(String sourceDatabase){
+        Set<String> res = new HashSet<>();
+        for(TechnicalMapping rule: rules) {
+            if(rule.sourceDatabase.equals(sourceDatabase) && !rule.isLookup())
+                res.add(rule.sourceCollection);
+        }
+        return res;
+    }
+
+    /**
+     *
+     * @return list of distinct target tables populated from source database and collection
+     */
+    public Set<String> getTargetTables(String sourceDatabase, String sourceCollection){
+        Set<String> res = new HashSet<>();
+        for(TechnicalMapping rule: rules) {
+            if(rule.sourceDatabase.equals(sourceDatabase) && rule.sourceCollection.equals(sourceCollection)
+                    && !rule.isLookup())
+                res.add(rule.targetTableName);
+        }
+        return res;
+    }
+
     /*
      *
      * @param targetTable
@@ -89,7 +129,8 @@ public abstract class TechnicalMappingReader {
     public Set<String> getSourceCollection(String targetTable, String sourceDatabase){
         Set<String> res = new HashSet<>();
         for(TechnicalMapping rule: rules) {
-            if(rule.targetTableName.equals(targetTable) && rule.sourceDatabase.equals(sourceDatabase))
+            if(rule.targetTableName.equals(targetTable) && rule.sourceDatabase.equals(sourceDatabase)
+                    && !rule.isLookup())
                 res.add(rule.sourceCollection);
         }
         return res;
@@ -97,18 +138,65 @@ public abstract class TechnicalMappingReader {
 
     /*
       Get a set of mappings for the columns in one target table (and source mongo db/collection
+      followed by lookup rules of the table, which are looked up for documents of any of its collections
       // TODO just do this on target table?
      */
     public List<TechnicalMapping> getSourceFields(String targetTable, String sourceDatabase, String sourceCollection){
         List<TechnicalMapping> res =   new ArrayList<>();
         for(TechnicalMapping rule: rules) {
             if(rule.targetTableName.equals(targetTable) && rule.sourceDatabase.equals(sourceDatabase)
-                    && rule.sourceCollection.equals(sourceCollection))
+                    && rule.sourceCollection.equals(sourceCollection) && !rule.isLookup())
                 res.add(rule);
         }
+        if(res.isEmpty())
+            return res;
+        SystemColumns.updateOrAddSystemColumnMappings(res);
+        res.addAll(getLookupFields(targetTable));
+        return res;
+    }
+
+    /**
+     * @return lookup rules of the target table
+     */
+    public List<TechnicalMapping> getLookupFields(String targetTable){
+        List<TechnicalMapping> res = new ArrayList<>();
+        for(TechnicalMapping rule: rules) {
+            if(rule.targetTableName.equals(targetTable) && rule.isLookup())
+                res.add(rule);
+        }
+        return res;
+    }
+
+    /*
+      Get mappings of the lookup source table of one target table and one looked up db/collection: looked up
+      fields, keys they are looked up by and system columns, as rules which aren't lookups themselves.
+     */
+    public List<TechnicalMapping> getLookupSourceFields(String targetTable, String sourceDatabase
+            , String sourceCollection){
+        List<TechnicalMapping> res = new ArrayList<>();
+        for(TechnicalMapping lookup: getLookupFields(targetTable)) {
+            if(!lookup.sourceDatabase.equals(sourceDatabase) || !lookup.sourceCollection.equals(sourceCollection))
+                continue;
+            res.add(lookup.copy(lookup.jsonPath, lookup.targetFieldName));
+            TechnicalMapping key = lookup.copy(lookup.getLookup().y, lookup.targetFieldName + "_key");
+            key.sourceType = MappingTypeEnum.SOURCE_TYPE_STRING;
+            res.add(key);
+        }
         return SystemColumns.updateOrAddSystemColumnMappings(res);
     }
 
+    /*
+      Get a set of mappings for all target tables populated from one source mongo db/collection.
+      Used to generate single source table which schema is the union of all target tables' fields.
+     */
+    public List<TechnicalMapping> getSourceFields(String sourceDatabase, String sourceCollection){
+        List<TechnicalMapping> res =   new ArrayList<>();
+        for(String targetTable: getTargetTables(sourceDatabase, sourceCollection)) {
+            res.addAll(getSourceFields(targetTable, sourceDatabase, sourceCollection));
+        }
+        return res;
+    }
+
     /**
      *
      * @return list of distinct target tables
@@ -3,10 +3,17 @@ package uk.gov.dwp.uc.dip.schemagenerator;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import com.opencsv.CSVReader;
 import org.apache.commons.cli.*;
@@ -14,9 +21,16 @@ import org.apache.log4j.Logger;
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMappingException;
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMappingReader;
+import uk.gov.dwp.uc.dip.schemagenerator.common.Tuple;
 import uk.gov.dwp.uc.dip.schemagenerator.datachecks.DataCheck;
 import uk.gov.dwp.uc.dip.schemagenerator.postgrestable.PostgresTableGenerator;
+import uk.gov.dwp.uc.dip.schemagenerator.profile.ProfileGenerator;
+import uk.gov.dwp.uc.dip.schemagenerator.sourcetable.SerDeEnum;
 import uk.gov.dwp.uc.dip.schemagenerator.sourcetable.SourceTableGenerator;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.FilterOperatorEnum;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.MaterializationEnum;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.RemovedStrategyEnum;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.TableFilter;
 import uk.gov.dwp.uc.dip.schemagenerator.transformtable.TransformTableGenerator;
 
 /**
@@ -26,6 +40,33 @@ import uk.gov.dwp.uc.dip.schemagenerator.transformtable.TransformTableGenerator;
 public class SchemaGenerator {
 
     private String sourceJsonFileLocation;
+    private RemovedStrategyEnum removedStrategy = RemovedStrategyEnum.COALESCE_COLUMNS;
+    private boolean zipSiblingExplodes;
+    private boolean projectSourceExpressions;
+    private boolean jsonTuple;
+    private boolean landing;
+    private boolean reuseLanding;
+    private long landingFileSize = DEFAULT_LANDING_FILE_SIZE;
+    private String snapshotFrom;
+    private String snapshotTo;
+    private boolean incremental;
+    private boolean compactIncremental;
+    private String dedupKey;
+    private MaterializationEnum materialization = MaterializationEnum.TABLE;
+    private boolean udf;
+    private String udfJar;
+    private SerDeEnum serDe = SerDeEnum.OPENX;
+    private boolean flatten;
+    private boolean skipMalformed;
+    private boolean shareExplodes;
+    private boolean inline;
+    private Double ndvErrorBand;
+    private Integer precheckRows;
+    private HashMap<String,List<TableFilter>> filters = new HashMap<>();
+    // collections landed by already generated statements
+    private Set<String> landedCollections = new HashSet<>();
+    final static long DEFAULT_LANDING_FILE_SIZE = 256000000L;
+    final static String DEFAULT_DEDUP_KEY = "_id";
     public TechnicalMappingReader techMap;
     private final static Logger log = Logger.getLogger(SchemaGenerator.class);
 
@@ -54,9 +95,70 @@ public class SchemaGenerator {
         options.addOption("g", false, "output postgres create table(s) script");
         options.addOption("o", false, "output target tables list");
         options.addOption("d", false, "output data checks");
+        options.addOption("precheck", true, "rows sampled from each split of source tables checked before " +
+                "the transform, the script stops when no documents are found, not_nullable path has no value, " +
+                "values don't convert into target type or unique path has one value");
+        options.addOption("ndvband", true, "with -dq, unique checks compare distinct count estimated by " +
+                "compute_stats with count of values and group by exactly only columns which estimate is within " +
+                "the band e.g. 0.05 below the count");
+        options.addOption("dq", false, "output data checks of each target table evaluated by single scan " +
+                "appending a row per check to " + DataCheck.CHECK_RESULTS_TABLE);
+        options.addOption("profile", false, "output profile of each target table computed by single scan " +
+                "appending a row per column to " + ProfileGenerator.PROFILE_TABLE + " partitioned by run date");
         options.addOption("orc", false, "store table as orc");
         options.addOption("avro", false, "store table as avro");
         options.addOption("where", true, "target table name to where clause to append at the end of create .. statement");
+        options.addOption("shareexplodes", false, "with -c, explodes which target tables of a collection " +
+                "have in common are materialized once into temporary table the tables read");
+        options.addOption("inline", false, "arrays of structs are exploded by INLINE into a column per struct " +
+                "field instead of EXPLODE into a struct");
+        options.addOption("filter", true, "csv file of target table filters: target table, json path, operator " +
+                "e.g. = or IS NULL, SQL literal. Filters of paths which aren't exploded are applied to documents " +
+                "before lateral views");
+        options.addOption("removed", true, "how removed documents are sourced: columns (default) coalesces every " +
+                "column with its _removed version, document selects live or removed document once per row");
+        options.addOption("zip", false, "explode sibling arrays together by position instead of producing " +
+                "their cross product");
+        options.addOption("project", false, "select source expressions once in inner query and convert them " +
+                "in outer query");
+        options.addOption("jsontuple", false, "extract keys of the same json path with single JSON_TUPLE " +
+                "instead of GET_JSON_OBJECT per key");
+        options.addOption("landing", false, "copy each collection into compacted ORC landing table " +
+                "and transform from it");
+        options.addOption("landingfilesize", true, "target size in bytes of landing table files, default " +
+                DEFAULT_LANDING_FILE_SIZE);
+        options.addOption("landed", false, "transform from landing tables created by previous run, " +
+                "implies -landing");
+        options.addOption("from", true, "first snapshot date e.g. 2017-01-01, -l is location of snapshot " +
+                "directories, source and target tables are partitioned by snapshot date, lookups read the last " +
+                "snapshot, implies -c, not supported with -landing");
+        options.addOption("to", true, "last snapshot date, defaults to -from");
+        options.addOption("incremental", false, "merge documents changed since the last load into transactional " +
+                "tables with key columns keeping the latest change of each key, other tables are rebuilt, not " +
+                "supported with -c, -from or tables with key columns populated from more than one collection or " +
+                "exploding arrays");
+        options.addOption("compact", false, "request major compaction of incrementally loaded tables");
+        options.addOption("dedup", false, "transform only the latest _version of each document, " +
+                "documents are identified by -dedupkey which has to be mapped");
+        options.addOption("dedupkey", true, "json path identifying document, default " + DEFAULT_DEDUP_KEY +
+                ", implies -dedup");
+        options.addOption("materialize", true, "how target tables are materialized unless set by their " +
+                "materialize meta: table (default) is rebuilt, view is transformed when queried, materialized is " +
+                "materialized view rebuilt incrementally when possible, materialized views need HIVE 3");
+        options.addOption("udf", false, "convert timestamps, dates and booleans with functions of jive-udf " +
+                "instead of SQL expressions");
+        options.addOption("udfjar", true, "location of jive-udf jar added to the session e.g. " +
+                "hdfs:///lib/jive-udf.jar, implies -udf");
+        options.addOption("serde", true, "SerDe of source tables: openx (default) or jive which decodes only " +
+                "columns read by the query, jive-udf jar has to be added to the session e.g. with -udfjar");
+        options.addOption("flatten", false, "source tables hold raw documents flattened into each target table " +
+                "by single jive_flatten call which parses the document once, registers jive-udf functions, " +
+                "-zip, -project and -jsontuple don't apply, not supported with -from, -incremental, -dedup " +
+                "and -removed document");
+        options.addOption("skipmalformed", false, "skip documents which aren't JSON objects instead of failing " +
+                "the job, implies -flatten");
+        options.addOption("c", false, "generate one source table per collection and populate all its target tables " +
+                "with a single multi-insert, -t is ignored");
 
         CommandLineParser parser = new DefaultParser();
 
@@ -79,6 +181,9 @@ public class SchemaGenerator {
             boolean generateTargetDBCreateTable = cmd.hasOption("g");
             boolean listTargetTable = cmd.hasOption("o");
             boolean generateDataQualityChecks = cmd.hasOption("d");
+            boolean generateSingleScanDataQualityChecks = cmd.hasOption("dq");
+            boolean generateProfiles = cmd.hasOption("profile");
+            boolean transformByCollection = cmd.hasOption("c") || cmd.hasOption("from");
             String storeTableAs = "";
             if (cmd.hasOption("orc"))
                 storeTableAs = "STORED AS ORC";
@@ -86,6 +191,64 @@ public class SchemaGenerator {
                 storeTableAs = "STORED AS AVRO";
 
             SchemaGenerator generator = new SchemaGenerator(technicalMapping);
+            generator.setZipSiblingExplodes(cmd.hasOption("zip"));
+            generator.setProjectSourceExpressions(cmd.hasOption("project"));
+            generator.setJsonTuple(cmd.hasOption("jsontuple"));
+            generator.setLanding(cmd.hasOption("landing") || cmd.hasOption("landed"));
+            generator.setReuseLanding(cmd.hasOption("landed"));
+            generator.setIncremental(cmd.hasOption("incremental"));
+            generator.setCompactIncremental(cmd.hasOption("compact"));
+            if(cmd.hasOption("from") && (cmd.hasOption("landing") || cmd.hasOption("landed"))){
+                System.err.println("-landing and -landed can't be combined with -from, snapshots are read " +
+                        "from their directories");
+                help(options);
+            }
+            if(cmd.hasOption("from")){
+                String from = cmd.getParsedOptionValue("from").toString();
+                try {
+                    generator.setSnapshotRange(from,
+                            cmd.hasOption("to") ? cmd.getParsedOptionValue("to").toString() : from);
+                } catch (IllegalArgumentException e) {
+                    System.err.println(e.getMessage());
+                    help(options);
+                }
+            }
+            if(cmd.hasOption("dedupkey")){
+                generator.setDedupKey(cmd.getParsedOptionValue("dedupkey").toString());
+            }else if(cmd.hasOption("dedup")){
+                generator.setDedupKey(DEFAULT_DEDUP_KEY);
+            }
+            if(cmd.hasOption("materialize")){
+                generator.setMaterialization(MaterializationEnum.getByMaterializationName(
+                        cmd.getParsedOptionValue("materialize").toString()));
+            }
+            generator.setUdf(cmd.hasOption("udf") || cmd.hasOption("udfjar"));
+            if(cmd.hasOption("udfjar")){
+                generator.setUdfJar(cmd.getParsedOptionValue("udfjar").toString());
+            }
+            if(cmd.hasOption("serde")){
+                generator.setSerDe(SerDeEnum.getBySerDeName(cmd.getParsedOptionValue("serde").toString()));
+            }
+            generator.setFlatten(cmd.hasOption("flatten") || cmd.hasOption("skipmalformed"));
+            generator.setSkipMalformed(cmd.hasOption("skipmalformed"));
+            generator.setShareExplodes(cmd.hasOption("shareexplodes"));
+            generator.setInline(cmd.hasOption("inline"));
+            if(cmd.hasOption("precheck")){
+                generator.setPrecheckRows(Integer.parseInt(cmd.getParsedOptionValue("precheck").toString()));
+            }
+            if(cmd.hasOption("ndvband")){
+                generator.setNdvErrorBand(Double.parseDouble(cmd.getParsedOptionValue("ndvband").toString()));
+            }
+            if(cmd.hasOption("landingfilesize")){
+                generator.setLandingFileSize(Long.parseLong(cmd.getParsedOptionValue("landingfilesize").toString()));
+            }
+            if(cmd.hasOption("removed")){
+                generator.setRemovedStrategy(RemovedStrategyEnum.getByStrategyName(
+                        cmd.getParsedOptionValue("removed").toString()));
+            }
+            if(cmd.hasOption("filter")){
+                generator.setFilters(getFilters(cmd.getParsedOptionValue("filter").toString()));
+            }
             HashMap<String,String> wheres = new LinkedHashMap<>();
 
             if(cmd.hasOption("where")){
@@ -113,6 +276,16 @@ public class SchemaGenerator {
                 for (String table : generator.techMap.getTargetTables()) {
                     System.out.println(table);
                 }
+            }else if(generateSingleScanDataQualityChecks){
+                for (String t : targetTable.length() > 0 ? Collections.singleton(targetTable)
+                        : generator.techMap.getTargetTables()) {
+                    System.out.println(generator.dataQualityAsString(t));
+                }
+            }else if(generateProfiles){
+                for (String t : targetTable.length() > 0 ? Collections.singleton(targetTable)
+                        : generator.techMap.getTargetTables()) {
+                    System.out.println(generator.profileAsString(t));
+                }
             }else if(generateDataQualityChecks){
                 if(targetTable.length()>0) {
                     System.out.println("!echo ------------------------;");
@@ -129,6 +302,10 @@ public class SchemaGenerator {
                     }
                 }
             }
+            else if(transformByCollection) {
+                // transform all rules, collection by collection
+                System.out.println(generator.transformCollectionsAsString(storeTableAs, wheres));
+            }
             else if(targetTable.length()>0) {
                 // transform single table
                 System.out.println("!echo ------------------------;");
@@ -182,22 +359,68 @@ public class SchemaGenerator {
 
     public List<String> transformStoreaAs(String targetTable, String storeTableAs, HashMap<String,String> wheres){
         List<String> result = new ArrayList<>();
+        // pairs of <source table name, <source database, source collection>>
+        HashMap<String,Tuple<String,String>> sourceTableNames = new LinkedHashMap<>();
+        // pairs of <source table name, rules the source table was created from>
+        HashMap<String,List<TechnicalMapping>> sourceTableRules = new HashMap<>();
         // SOURCE STEP
-        // TODO there's only going to be one source database per table (for foreseeable future).
-        // TODO remove next.
         for(String sourceDatabase: techMap.getSourceDatabases(targetTable)) {
-            // TODO similarly, 1:1 collection mapping
             for (String sourceCollection : techMap.getSourceCollection(targetTable, sourceDatabase)) {
 
                 // SOURCE STEP
                 SourceTableGenerator sourceTableGenerator = new SourceTableGenerator(sourceJsonFileLocation);
-                result.addAll(sourceTableGenerator.generateSqlForTable(
-                        techMap, targetTable, sourceDatabase, sourceCollection));
+                sourceTableGenerator.setSerDe(serDe);
+                sourceTableGenerator.setRawDocuments(flatten);
+                String sourceTableName;
+                if(landing) {
+                    // landing table holds all fields of the collection so it is shared by its target tables
+                    result.addAll(land(sourceTableGenerator, sourceDatabase, sourceCollection));
+                    sourceTableName = SourceTableGenerator.getLandingTableName(sourceDatabase, sourceCollection);
+                    sourceTableRules.put(sourceTableName, techMap.getSourceFields(sourceDatabase, sourceCollection));
+                }else {
+                    result.addAll(sourceTableGenerator.generateSqlForTable(
+                            techMap, targetTable, sourceDatabase, sourceCollection));
+                    sourceTableName = sourceTableGenerator.getTargetSourceTableName();
+                    sourceTableRules.put(sourceTableName
+                            , techMap.getSourceFields(targetTable, sourceDatabase, sourceCollection));
+                }
+                sourceTableNames.put(sourceTableName, new Tuple<>(sourceDatabase, sourceCollection));
+            }
+        }
 
-                // TRANSFORM STEP
-                TransformTableGenerator transformTableGenerator = new TransformTableGenerator();
+        result.addAll(generateLookupSql(Collections.singleton(targetTable)));
+
+        // TRANSFORM STEP
+        TransformTableGenerator transformTableGenerator = new TransformTableGenerator();
+        transformTableGenerator.setRemovedStrategy(removedStrategy);
+        transformTableGenerator.setZipSiblingExplodes(zipSiblingExplodes);
+        transformTableGenerator.setProjectSourceExpressions(projectSourceExpressions);
+        transformTableGenerator.setJsonTuple(jsonTuple);
+        transformTableGenerator.setIncremental(incremental);
+        transformTableGenerator.setCompactIncremental(compactIncremental);
+        transformTableGenerator.setDedupKey(dedupKey);
+        transformTableGenerator.setMaterialization(materialization);
+        transformTableGenerator.setUdf(udf);
+        transformTableGenerator.setFlatten(flatten);
+        transformTableGenerator.setSkipMalformed(skipMalformed);
+        transformTableGenerator.setFilters(filters);
+        transformTableGenerator.setInline(inline);
+        transformTableGenerator.setSourceTableRules(sourceTableRules);
+        result.addAll(0, getSessionSql());
+        if(precheckRows != null) {
+            for(Map.Entry<String,Tuple<String,String>> source: sourceTableNames.entrySet()) {
+                result.addAll(transformTableGenerator.generatePrecheckSql(source.getKey(), techMap.getSourceFields(
+                        targetTable, source.getValue().x, source.getValue().y), precheckRows));
+            }
+        }
+        if(sourceTableNames.size() > 1) {
+            // target table populated from many collections is written once by all of them
+            result.addAll(transformTableGenerator.generateUnionSqlForTable(
+                    techMap, targetTable, sourceTableNames, storeTableAs, wheres));
+        }else {
+            for(String sourceTableName: sourceTableNames.keySet()) {
                 result.addAll(transformTableGenerator.generateSqlForTable(
-                        techMap, targetTable, sourceTableGenerator.getTargetSourceTableName(), storeTableAs, wheres));
+                        techMap, targetTable, sourceTableName, storeTableAs, wheres));
             }
         }
 
@@ -208,6 +431,161 @@ public class SchemaGenerator {
         return transformStoreaAs(targetTable, "", new LinkedHashMap<>());
     }
 
+    private String transformCollectionsAsString(String storeTableAs, HashMap<String,String> wheres){
+        List<String> transforms = transformCollectionsStoreAs(storeTableAs, wheres);
+        StringBuilder result = new StringBuilder();
+        for(String transform : transforms){
+            result.append(transform).append(";\n\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Generates one source table per collection and populates all target tables of the collection from it
+     * so each collection is read and deserialized once rather than once per target table.
+     */
+    public List<String> transformCollectionsStoreAs(String storeTableAs, HashMap<String,String> wheres){
+        if(incremental)
+            throw new IllegalStateException("collections can't be transformed incrementally, " +
+                    "target tables are merged one by one");
+        if(landing && snapshotFrom != null)
+            throw new IllegalStateException("snapshots can't be landed, they are read from their directories");
+        List<String> result = new ArrayList<>();
+        TransformTableGenerator transformTableGenerator = new TransformTableGenerator();
+        transformTableGenerator.setRemovedStrategy(removedStrategy);
+        transformTableGenerator.setZipSiblingExplodes(zipSiblingExplodes);
+        transformTableGenerator.setProjectSourceExpressions(projectSourceExpressions);
+        transformTableGenerator.setJsonTuple(jsonTuple);
+        transformTableGenerator.setDedupKey(dedupKey);
+        transformTableGenerator.setMaterialization(materialization);
+        transformTableGenerator.setUdf(udf);
+        transformTableGenerator.setFlatten(flatten);
+        transformTableGenerator.setSkipMalformed(skipMalformed);
+        transformTableGenerator.setFilters(filters);
+        transformTableGenerator.setShareExplodes(shareExplodes);
+        transformTableGenerator.setInline(inline);
+        // pairs of <source table name, rules the source table was created from>
+        HashMap<String,List<TechnicalMapping>> sourceTableRules = new HashMap<>();
+        transformTableGenerator.setSourceTableRules(sourceTableRules);
+        result.addAll(getSessionSql());
+        if(snapshotFrom != null) {
+            transformTableGenerator.setSnapshotRange(snapshotFrom, snapshotTo);
+            result.add("SET hive.exec.dynamic.partition=true");
+            result.add("SET hive.exec.dynamic.partition.mode=nonstrict");
+        }
+
+        // TARGET STEP
+        // target tables are created upfront as they may be populated from more than one collection
+        for(String targetTable: techMap.getTargetTables()){
+            result.addAll(transformTableGenerator.generateCreateTableSql(techMap, targetTable, storeTableAs));
+        }
+        result.addAll(generateLookupSql(techMap.getTargetTables()));
+
+        for(String sourceDatabase: techMap.getSourceDatabases()) {
+            for (String sourceCollection : techMap.getSourceCollections(sourceDatabase)) {
+
+                // SOURCE STEP
+                SourceTableGenerator sourceTableGenerator = new SourceTableGenerator(sourceJsonFileLocation);
+                sourceTableGenerator.setSerDe(serDe);
+                sourceTableGenerator.setRawDocuments(flatten);
+                String sourceTableName;
+                if(snapshotFrom != null) {
+                    // new snapshots are attached to source table kept between runs
+                    result.addAll(sourceTableGenerator.generateSnapshotSqlForCollection(
+                            techMap, sourceDatabase, sourceCollection, getSnapshotDates()));
+                    sourceTableName = sourceTableGenerator.getTargetSourceTableName();
+                }else if(landing) {
+                    result.addAll(land(sourceTableGenerator, sourceDatabase, sourceCollection));
+                    sourceTableName = SourceTableGenerator.getLandingTableName(sourceDatabase, sourceCollection);
+                }else {
+                    result.addAll(sourceTableGenerator.generateSqlForCollection(
+                            techMap, sourceDatabase, sourceCollection));
+                    sourceTableName = sourceTableGenerator.getTargetSourceTableName();
+                }
+
+                if(precheckRows != null)
+                    result.addAll(transformTableGenerator.generatePrecheckSql(sourceTableName
+                            , techMap.getSourceFields(sourceDatabase, sourceCollection), precheckRows));
+
+                // TRANSFORM STEP
+                sourceTableRules.put(sourceTableName, techMap.getSourceFields(sourceDatabase, sourceCollection));
+                result.addAll(transformTableGenerator.generateSqlForCollection(
+                        techMap, sourceDatabase, sourceCollection, sourceTableName, wheres));
+            }
+        }
+
+        return result;
+    }
+
+    public List<String> transformCollections() {
+        return transformCollectionsStoreAs("", new LinkedHashMap<>());
+    }
+
+    /**
+     * Looked up collections are small dimensions, so joins with them are converted into map-side joins and
+     * the target table is built in the same pass that looks its fields up.
+     * @return statements creating source tables of collections looked up by the target tables
+     */
+    private List<String> generateLookupSql(Collection<String> targetTables){
+        List<String> result = new ArrayList<>();
+        Set<String> lookupTableNames = new HashSet<>();
+        for(String targetTable: targetTables) {
+            for(TechnicalMapping lookup: techMap.getLookupFields(targetTable)) {
+                String sourceDatabase = lookup.getSourceDatabase();
+                String sourceCollection = lookup.sourceCollection;
+                if(!lookupTableNames.add(SourceTableGenerator.getLookupTableName(sourceDatabase, sourceCollection, targetTable)))
+                    continue;
+                // looked up collections aren't partitioned, snapshots of the range look up the last one
+                SourceTableGenerator sourceTableGenerator = new SourceTableGenerator(snapshotFrom == null
+                        ? sourceJsonFileLocation : String.format("%s/%s", sourceJsonFileLocation, snapshotTo));
+                sourceTableGenerator.setSerDe(serDe);
+                result.addAll(sourceTableGenerator.generateLookupSqlForTable(
+                        techMap, targetTable, sourceDatabase, sourceCollection));
+            }
+        }
+        if(!result.isEmpty())
+            result.add(0, "SET hive.auto.convert.join=true");
+        return result;
+    }
+
+    /**
+     * @return statements adding jive-udf jar and its functions to the session when they are used
+     */
+    private List<String> getSessionSql(){
+        List<String> result = new ArrayList<>();
+        if(udf || flatten) {
+            result.addAll(TransformTableGenerator.generateCreateFunctionSql(udfJar));
+        }else if(serDe == SerDeEnum.JIVE && udfJar != null && !udfJar.isEmpty()) {
+            result.add(String.format("ADD JAR %s", udfJar));
+        }
+        return result;
+    }
+
+    /**
+     * @return dates of snapshot range, both ends inclusive
+     */
+    private List<String> getSnapshotDates(){
+        List<String> dates = new ArrayList<>();
+        for(LocalDate date = LocalDate.parse(snapshotFrom); !date.isAfter(LocalDate.parse(snapshotTo));
+            date = date.plusDays(1)){
+            dates.add(date.toString());
+        }
+        return dates;
+    }
+
+    /**
+     * Generates landing table of the collection unless it was landed already by this or, when reused,
+     * previous run.
+     */
+    private List<String> land(SourceTableGenerator sourceTableGenerator, String sourceDatabase, String sourceCollection){
+        List<String> result = new ArrayList<>();
+        if(!reuseLanding && landedCollections.add(sourceDatabase + "." + sourceCollection)) {
+            result.addAll(sourceTableGenerator.generateLandingSqlForCollection(
+                    techMap, sourceDatabase, sourceCollection, landingFileSize));
+        }
+        return result;
+    }
+
     public String dataCheckAsString(String targetTable){
         List<String> dataChecks = generateDataChecks(targetTable);
         StringBuilder result = new StringBuilder();
@@ -229,6 +607,38 @@ public class SchemaGenerator {
         return result;
     }
 
+    public String dataQualityAsString(String targetTable){
+        StringBuilder result = new StringBuilder();
+        for(String dataCheck : generateDataQualitySql(targetTable)){
+            result.append(dataCheck).append(";\n\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return statements evaluating all data checks of the target table by single scan
+     */
+    public List<String> generateDataQualitySql(String targetTable){
+        DataCheck dataCheck = new DataCheck();
+        dataCheck.setNdvErrorBand(ndvErrorBand);
+        return dataCheck.getDataQualitySQL(targetTable, techMap.getTargetColumns(targetTable));
+    }
+
+    public String profileAsString(String targetTable){
+        StringBuilder result = new StringBuilder();
+        for(String profile : generateProfileSql(targetTable)){
+            result.append(profile).append(";\n\n");
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return statements profiling all columns of the target table by single scan
+     */
+    public List<String> generateProfileSql(String targetTable){
+        return new ProfileGenerator().getSqlForTable(techMap, targetTable);
+    }
+
     private static void help(Options o){
         try {
             SchemaGenerator s = new SchemaGenerator();
@@ -248,6 +658,140 @@ public class SchemaGenerator {
         this.sourceJsonFileLocation = sourceJsonFileLocation;
     }
 
+    public void setRemovedStrategy(RemovedStrategyEnum removedStrategy) {
+        this.removedStrategy = removedStrategy;
+    }
+
+    public void setZipSiblingExplodes(boolean zipSiblingExplodes) {
+        this.zipSiblingExplodes = zipSiblingExplodes;
+    }
+
+    public void setProjectSourceExpressions(boolean projectSourceExpressions) {
+        this.projectSourceExpressions = projectSourceExpressions;
+    }
+
+    public void setJsonTuple(boolean jsonTuple) {
+        this.jsonTuple = jsonTuple;
+    }
+
+    /**
+     * Transforms collections from snapshots of provided range. Source json location is the location of
+     * snapshot directories named by date.
+     * @param snapshotFrom first snapshot date e.g. 2017-01-01
+     * @param snapshotTo last snapshot date
+     */
+    public void setSnapshotRange(String snapshotFrom, String snapshotTo) {
+        LocalDate from = parseSnapshotDate(snapshotFrom);
+        if(from.isAfter(parseSnapshotDate(snapshotTo)))
+            throw new IllegalArgumentException(String.format("first snapshot date %s is after last snapshot date %s"
+                    , snapshotFrom, snapshotTo));
+        this.snapshotFrom = snapshotFrom;
+        this.snapshotTo = snapshotTo;
+    }
+
+    private static LocalDate parseSnapshotDate(String snapshotDate){
+        try {
+            return LocalDate.parse(snapshotDate);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException(String.format("snapshot date %s has to be yyyy-mm-dd e.g. 2017-01-01"
+                    , snapshotDate), e);
+        }
+    }
+
+    /**
+     * Target tables with key columns are merged with documents changed since their last load.
+     */
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setCompactIncremental(boolean compactIncremental) {
+        this.compactIncremental = compactIncremental;
+    }
+
+    /**
+     * @param dedupKey json path identifying document, only its latest version is transformed, null disables
+     */
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    public void setMaterialization(MaterializationEnum materialization) {
+        this.materialization = materialization;
+    }
+
+    public void setUdf(boolean udf) {
+        this.udf = udf;
+    }
+
+    public void setUdfJar(String udfJar) {
+        this.udfJar = udfJar;
+    }
+
+    public void setSerDe(SerDeEnum serDe) {
+        this.serDe = serDe;
+    }
+
+    /**
+     * @param flatten when set, target tables are flattened from raw documents by jive_flatten
+     */
+    public void setFlatten(boolean flatten) {
+        this.flatten = flatten;
+    }
+
+    /**
+     * @param skipMalformed when set, flattened documents which aren't JSON objects give no rows instead of
+     *                      failing the job
+     */
+    public void setSkipMalformed(boolean skipMalformed) {
+        this.skipMalformed = skipMalformed;
+    }
+
+    /**
+     * @param shareExplodes when set, explodes target tables of a collection have in common are materialized once
+     */
+    public void setShareExplodes(boolean shareExplodes) {
+        this.shareExplodes = shareExplodes;
+    }
+
+    /**
+     * @param inline when set, arrays of structs are exploded by INLINE into a column per struct field
+     */
+    public void setInline(boolean inline) {
+        this.inline = inline;
+    }
+
+    public void setNdvErrorBand(Double ndvErrorBand) {
+        this.ndvErrorBand = ndvErrorBand;
+    }
+
+    /**
+     * @param precheckRows rows sampled from each split of source tables checked before the transform, null
+     *                     when source tables aren't checked
+     */
+    public void setPrecheckRows(Integer precheckRows) {
+        this.precheckRows = precheckRows;
+    }
+
+    /**
+     * @param filters filters of target tables by target table name
+     */
+    public void setFilters(HashMap<String,List<TableFilter>> filters) {
+        this.filters = filters;
+    }
+
+    public void setLanding(boolean landing) {
+        this.landing = landing;
+    }
+
+    public void setReuseLanding(boolean reuseLanding) {
+        this.reuseLanding = reuseLanding;
+    }
+
+    public void setLandingFileSize(long landingFileSize) {
+        this.landingFileSize = landingFileSize;
+    }
+
     /***
      * Loads map of target-table=where-clause that will ba attached at the end of the
      * @return
@@ -263,4 +807,24 @@ public class SchemaGenerator {
 
         return wheres;
     }
+
+    /***
+     * Loads filters of target tables from rows of target-table,json-path,operator,value
+     * @return
+     */
+    private static HashMap<String,List<TableFilter>> getFilters(String filePath) throws IOException{
+        HashMap<String,List<TableFilter>> filters = new LinkedHashMap<>();
+        CSVReader reader = new CSVReader(new FileReader(filePath));
+        List<String[]> rows=reader.readAll();
+
+        for(String row[] : rows){
+            FilterOperatorEnum operator = FilterOperatorEnum.getByOperatorName(row[2]);
+            if(operator == null)
+                throw new IllegalArgumentException(String.format("Unknown filter operator %s of %s", row[2], row[0]));
+            filters.computeIfAbsent(row[0], k -> new ArrayList<>())
+                    .add(new TableFilter(row[1], operator, row.length > 3 ? row[3] : ""));
+        }
+
+        return filters;
+    }
 }
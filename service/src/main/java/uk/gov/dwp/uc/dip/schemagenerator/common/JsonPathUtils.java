@@ -14,6 +14,13 @@ public class JsonPathUtils {
         return new ArrayList<>(Arrays.asList(jsonPath.split("\\.")));
     }
 
+    /**
+     * @return top level field of jsonpath stripped off from index operator, it is the source table column name
+     */
+    static public String getTopLevelField(String jsonPath){
+        return getJsonSegmentInfo(getSegments(jsonPath).get(0)).normalizedJsonSegment;
+    }
+
     /**
      * Works like substring: returns subpath starting from start segment
      * @param jsonPath
@@ -69,6 +76,17 @@ public class JsonPathUtils {
         return new PathSplitByIndexOperatorInfo(jsonPath, foundExplodeOperator, leftPath, rightPath, isMapPath, isMapKeyPath);
     }
 
+    /**
+     * @return true when any segment of the jsonpath indexes a map with [mk] or [mv]
+     */
+    static public boolean hasMapSegment(String jsonPath){
+        for(String segment: getSegments(jsonPath)){
+            if(getJsonSegmentInfo(segment).isMap)
+                return true;
+        }
+        return false;
+    }
+
     /**
      * Adds back ticks to each segment of jsonPath or alone field name
      * @param path A JSON path
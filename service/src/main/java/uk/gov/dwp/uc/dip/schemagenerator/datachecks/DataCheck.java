@@ -1,7 +1,9 @@
 package uk.gov.dwp.uc.dip.schemagenerator.datachecks;
 
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
+import uk.gov.dwp.uc.dip.schemagenerator.common.TechnicalMappingJSONFieldSchema;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -10,6 +12,13 @@ import java.util.Set;
  * Created by chrisrozacki on 13/01/2017.
  */
 public class DataCheck {
+    public final static String CHECK_RESULTS_TABLE = "jive_check_results";
+    // orphan keys sampled by references check
+    private final static int ORPHAN_SAMPLES = 10;
+    // compute_stats takes at most 1024 bit vectors
+    private final static int MAX_BIT_VECTORS = 1024;
+
+    private Double ndvErrorBand = null;
 
     /** generates SQL that checks data quality
      * The checks are don\t change the table definitions but run SQL count, max, min etc
@@ -24,8 +33,12 @@ public class DataCheck {
             String sql;
             switch (dataCheck){
                 case NOT_NULLABLE:
-                    sql = String.format("SELECT COUNT(*) FROM %s WHERE `%s` IS NULL"
-                            , rule.targetTableName,rule.targetFieldName);
+                case RANGE:
+                case REGEX:
+                case ALLOWED_VALUES:
+                case MAX_LENGTH:
+                    sql = String.format("SELECT COUNT(*) FROM %s WHERE %s"
+                            , rule.targetTableName, getFailurePredicate(rule, dataCheck));
                     ret.add(sql);
                     break;
                 case UNIQUE_DATA_CHECK:
@@ -38,9 +51,246 @@ public class DataCheck {
 
                     ret.add(sql);
                     break;
+                case REFERENCES:
+                    // count of orphans followed by sample of their keys
+                    String orphans = getOrphansSQL(rule);
+                    ret.add(String.format("SELECT /*+ MAPJOIN(parent) */ COUNT(*) FROM %s", orphans));
+                    ret.add(String.format("SELECT /*+ MAPJOIN(parent) */ DISTINCT %s.`%s` FROM %s LIMIT %d"
+                            , rule.targetTableName, rule.targetFieldName, orphans, ORPHAN_SAMPLES));
+                    break;
+            }
+        }
+
+        return ret;
+    }
+
+    /**
+     * Hive has no anti-join, orphans are values without a match in outer join with distinct keys of the parent,
+     * which is small enough to be joined map-side
+     * @return FROM and WHERE clauses selecting values of the rule column which aren't keys of the parent table
+     */
+    private static String getOrphansSQL(TechnicalMapping rule){
+        return String.format("%s%s WHERE %s.`%s` IS NOT NULL AND parent.parent_key IS NULL", rule.targetTableName
+                , getParentJoinSQL(rule, rule.targetTableName, "parent"), rule.targetTableName, rule.targetFieldName);
+    }
+
+    /**
+     * @return outer join of distinct keys of the parent table referenced by the rule aliased as parent_key
+     */
+    private static String getParentJoinSQL(TechnicalMapping rule, String targetTable, String alias){
+        String reference = rule.getDataCheckArgument(DataCheckEnum.REFERENCES);
+        int separator = reference.lastIndexOf('.');
+        if(separator <= 0 || separator == reference.length() - 1)
+            throw new IllegalStateException(String.format("%s has to be checked by references(table.column)", rule));
+        return String.format(" LEFT OUTER JOIN (SELECT DISTINCT `%s` AS parent_key FROM %s) %s ON %s.`%s` = %s.parent_key"
+                , reference.substring(separator + 1), reference.substring(0, separator), alias
+                , targetTable, rule.targetFieldName, alias);
+    }
+
+    /**
+     * Generates single query evaluating all checks of the target table in one scan instead of a query per check.
+     * Each check is an aggregate counting values failing it, aggregates are unpivoted by STACK into a row per
+     * check appended to jive_check_results.
+     * COUNT(DISTINCT) without GROUP BY would send the whole table to a single reducer, so unique column is checked
+     * by its own scan grouped by the column, which counts values repeating another one.
+     * With NDV error band unique compares distinct count estimated by compute_stats, which needs no shuffle,
+     * with count of values. Column which estimate falls below the band has duplicates, column which estimate is
+     * within the band or above it passes. Estimate of fewer values than bit vectors isn't reliable, only such
+     * columns are grouped by exactly. Tier of each result tells which of them decided.
+     * @param rules columns of the target table
+     * @return statements creating results table and appending results of the checks, empty when nothing is checked
+     */
+    public List<String> getDataQualitySQL(String targetTable, List<TechnicalMapping> rules){
+        List<String> aggregates = new ArrayList<>();
+        List<String> results = new ArrayList<>();
+        List<String> estimatedColumns = new ArrayList<>();
+        List<String> groupedColumns = new ArrayList<>();
+        List<String> parentJoins = new ArrayList<>();
+        for(TechnicalMapping rule: rules){
+            for(DataCheckEnum dataCheck: rule.getDataChecks()){
+                String alias = "check_" + results.size();
+                String aggregate;
+                String failures = alias;
+                String tier = "'exact'";
+                switch (dataCheck){
+                    case NOT_NULLABLE:
+                    case RANGE:
+                    case REGEX:
+                    case ALLOWED_VALUES:
+                    case MAX_LENGTH:
+                        aggregate = String.format("SUM(IF(%s, 1, 0))", getFailurePredicate(rule, dataCheck));
+                        break;
+                    case UNIQUE_DATA_CHECK:
+                        if(ndvErrorBand == null) {
+                            groupedColumns.add(rule.targetFieldName);
+                            continue;
+                        }
+                        aggregate = String.format("compute_stats(CAST(`%s` AS STRING), %d)"
+                                , rule.targetFieldName, getBitVectors());
+                        aggregates.add(String.format("COUNT(`%s`) AS %s_values", rule.targetFieldName, alias));
+                        // estimate below the band fails, within or above it passes, NULL failures of columns with
+                        // too few values for the estimate are left for the exact check
+                        int bitVectors = getBitVectors();
+                        String values = alias + "_values";
+                        failures = String.format("CASE WHEN %s > 0 AND %s < %d THEN CAST(NULL AS BIGINT)" +
+                                        " WHEN %s.numdistinctvalues < %s * %s THEN %s - %s.numdistinctvalues ELSE 0 END"
+                                , values, values, bitVectors, alias, values
+                                , BigDecimal.ONE.subtract(BigDecimal.valueOf(ndvErrorBand)), values, alias);
+                        tier = String.format("IF(%s >= %d, 'approximate', 'exact')", values, bitVectors);
+                        estimatedColumns.add(rule.targetFieldName);
+                        break;
+                    case REFERENCES:
+                        // parent keys are joined map-side within the same scan
+                        String parent = "parent_" + parentJoins.size();
+                        parentJoins.add(getParentJoinSQL(rule, targetTable, parent));
+                        aggregate = String.format("SUM(IF(%s.`%s` IS NOT NULL AND %s.parent_key IS NULL, 1, 0))"
+                                , targetTable, rule.targetFieldName, parent);
+                        break;
+                    default:
+                        continue;
+                }
+                aggregates.add(String.format("%s AS %s", aggregate, alias));
+                results.add(String.format("'%s', '%s', %s, %s", rule.targetFieldName, dataCheck.getTypeName()
+                        , failures, tier));
             }
         }
 
+        List<String> ret = new ArrayList<>();
+        if(aggregates.isEmpty() && groupedColumns.isEmpty())
+            return ret;
+        ret.add(getCheckResultsTableSQL());
+        for(String column: groupedColumns){
+            // groups of all values, NULL included, add up to the row count, empty table has no groups
+            ret.add(String.format("INSERT INTO TABLE %s SELECT '%s', '%s', '%s', COALESCE(SUM(IF(`%s` IS NULL, 0, occurrences - 1)), 0)" +
+                            ", COALESCE(SUM(occurrences), 0), CURRENT_TIMESTAMP, 'exact' FROM (SELECT `%s`, COUNT(*) AS occurrences" +
+                            " FROM %s GROUP BY `%s`) grouped"
+                    , CHECK_RESULTS_TABLE, targetTable, column, DataCheckEnum.UNIQUE_DATA_CHECK.getTypeName()
+                    , column, column, targetTable, column));
+        }
+        if(aggregates.isEmpty())
+            return ret;
+        String hint = "";
+        if(!parentJoins.isEmpty()) {
+            List<String> parents = new ArrayList<>();
+            for(int parent = 0; parent < parentJoins.size(); parent++)
+                parents.add("parent_" + parent);
+            hint = String.format("/*+ MAPJOIN(%s) */ ", String.join(", ", parents));
+        }
+        String select = String.format("SELECT '%s' AS target_table, column_name, check_name, failures, row_count" +
+                        ", CURRENT_TIMESTAMP AS checked_at, tier FROM (SELECT %sCOUNT(*) AS row_count, \n%s\n FROM %s%s) checked" +
+                        "\n LATERAL VIEW STACK(%d, %s) results AS column_name, check_name, failures, tier"
+                , targetTable, hint, String.join(", \n", aggregates), targetTable, String.join("", parentJoins)
+                , results.size(), String.join(", ", results));
+        if(estimatedColumns.isEmpty()) {
+            ret.add(String.format("INSERT INTO TABLE %s %s", CHECK_RESULTS_TABLE, select));
+            return ret;
+        }
+
+        // results are staged so exact checks find the columns which estimates didn't decide
+        String stageTable = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName("tmp_checks_" + targetTable);
+        ret.add(String.format("DROP TABLE IF EXISTS %s", stageTable));
+        ret.add(String.format("CREATE TEMPORARY TABLE %s AS %s", stageTable, select));
+        ret.add(String.format("INSERT INTO TABLE %s SELECT * FROM %s WHERE failures IS NOT NULL"
+                , CHECK_RESULTS_TABLE, stageTable));
+        for(String column: estimatedColumns){
+            // undecided column joins its single staged row, decided column joins none so nothing is shuffled,
+            // SUM without GROUP BY gives a row even when no value is grouped
+            String pending = String.format("(SELECT row_count FROM %s WHERE column_name = '%s' AND check_name = '%s'" +
+                    " AND failures IS NULL) pending", stageTable, column, DataCheckEnum.UNIQUE_DATA_CHECK.getTypeName());
+            ret.add(String.format("INSERT INTO TABLE %s SELECT '%s', '%s', '%s', COALESCE(grouped.failures, 0)" +
+                            ", pending.row_count, CURRENT_TIMESTAMP, 'exact' FROM %s CROSS JOIN (SELECT SUM(occurrences - 1)" +
+                            " AS failures FROM (SELECT /*+ MAPJOIN(pending) */ `%s`, COUNT(*) AS occurrences FROM %s" +
+                            " CROSS JOIN %s WHERE `%s` IS NOT NULL GROUP BY `%s`) counted) grouped"
+                    , CHECK_RESULTS_TABLE, targetTable, column, DataCheckEnum.UNIQUE_DATA_CHECK.getTypeName()
+                    , pending, column, targetTable, pending, column, column));
+        }
         return ret;
     }
+
+    /**
+     * compute_stats estimates distinct count with standard error of 0.78 / SQRT(bit vectors), so the band covers
+     * two standard errors
+     * @return bit vectors of the estimate
+     */
+    private int getBitVectors(){
+        double bitVectors = Math.pow(2 * 0.78 / ndvErrorBand, 2);
+        int result = 2;
+        while(result < bitVectors && result < MAX_BIT_VECTORS)
+            result *= 2;
+        return result;
+    }
+
+    /**
+     * @param ndvErrorBand fraction of count of values, e.g. 0.05, unique columns which estimated distinct count
+     *                     is lower by more are decided without exact check
+     */
+    public void setNdvErrorBand(Double ndvErrorBand) {
+        if(ndvErrorBand != null && (ndvErrorBand <= 0 || ndvErrorBand >= 1))
+            throw new IllegalArgumentException("NDV error band has to be between 0 and 1");
+        this.ndvErrorBand = ndvErrorBand;
+    }
+
+    /**
+     * @return statement creating table results of data quality checks are appended to, tier tells whether
+     * the result is exact or approximate
+     */
+    public static String getCheckResultsTableSQL(){
+        return String.format("CREATE TABLE IF NOT EXISTS %s (target_table STRING, column_name STRING" +
+                ", check_name STRING, failures BIGINT, row_count BIGINT, checked_at TIMESTAMP, tier STRING) STORED AS ORC"
+                , CHECK_RESULTS_TABLE);
+    }
+
+    /**
+     * NULL values fail only not_nullable check
+     * @return predicate true for value of the rule column failing the check
+     */
+    private static String getFailurePredicate(TechnicalMapping rule, DataCheckEnum dataCheck){
+        String column = String.format("`%s`", rule.targetFieldName);
+        switch (dataCheck){
+            case NOT_NULLABLE:
+                return column + " IS NULL";
+            case RANGE:
+                String range = rule.getDataCheckArgument(dataCheck);
+                int separator = range.indexOf(':');
+                if(separator < 0)
+                    throw new IllegalStateException(String.format("%s has to be checked by range=min:max", rule));
+                List<String> bounds = new ArrayList<>();
+                String min = range.substring(0, separator);
+                String max = range.substring(separator + 1);
+                if(!min.isEmpty())
+                    bounds.add(String.format("%s < %s", column, getNumber(rule, min)));
+                if(!max.isEmpty())
+                    bounds.add(String.format("%s > %s", column, getNumber(rule, max)));
+                if(bounds.isEmpty())
+                    throw new IllegalStateException(String.format("%s has to be checked by range=min:max", rule));
+                return String.format("(%s)", String.join(" OR ", bounds));
+            case REGEX:
+                return String.format("%s NOT RLIKE %s", column, getLiteral(rule.getDataCheckArgument(dataCheck)));
+            case ALLOWED_VALUES:
+                List<String> values = new ArrayList<>();
+                for(String value: rule.getDataCheckArgument(dataCheck).split("\\|"))
+                    values.add(getLiteral(value));
+                return String.format("%s NOT IN (%s)", column, String.join(", ", values));
+            case MAX_LENGTH:
+                return String.format("LENGTH(%s) > %s", column, getNumber(rule
+                        , rule.getDataCheckArgument(dataCheck)));
+            default:
+                throw new IllegalArgumentException(dataCheck + " is not checked value by value");
+        }
+    }
+
+    private static String getNumber(TechnicalMapping rule, String number){
+        try {
+            return String.valueOf(new BigDecimal(number));
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException(String.format("%s is checked by %s which is not a number", rule, number));
+        }
+    }
+
+    /**
+     * @return quoted HIVE string literal
+     */
+    private static String getLiteral(String value){
+        return String.format("'%s'", value.replace("\\", "\\\\").replace("'", "\\'"));
+    }
 }
@@ -6,6 +6,16 @@ package uk.gov.dwp.uc.dip.schemagenerator.datachecks;
 public enum DataCheckEnum {
     UNIQUE_DATA_CHECK("unique"),
     NOT_NULLABLE("not_nullable"),
+    // range=min:max, either bound may be left out
+    RANGE("range"),
+    // regex=pattern which values have to match
+    REGEX("regex"),
+    // allowed=value1|value2|...
+    ALLOWED_VALUES("allowed"),
+    // max_length=length
+    MAX_LENGTH("max_length"),
+    // references(table.column) of parent table the value has to be found in
+    REFERENCES("references"),
     CUSTOM("");
 
     private final String typeName;
@@ -14,6 +24,10 @@ public enum DataCheckEnum {
         typeName = name;
     }
 
+    public String getTypeName(){
+        return typeName;
+    }
+
     /** Converts string to DataCheckEnum, if no match found then returns CUSTOM DataCheckEnum
      */
     public static DataCheckEnum getByTypeName(String typeName){
@@ -0,0 +1,64 @@
+package uk.gov.dwp.uc.dip.schemagenerator.profile;
+
+import uk.gov.dwp.uc.dip.mappingreader.TechnicalMappingReader;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.TransformTableGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Generates statements profiling all columns of a target table in one pass and appending a row per column to
+ * jive_profile partitioned by run date, so profiles are read rather than recomputed.
+ * Distinct count, average and maximum length are estimated by compute_stats of the value as string and most
+ * frequent values by context_ngrams, neither of them shuffles the table. Columns of ARRAY, MAP or STRUCT type
+ * have only their nulls counted.
+ */
+public class ProfileGenerator {
+    public final static String PROFILE_TABLE = "jive_profile";
+    private final static int BIT_VECTORS = 256;
+    private final static int TOP_VALUES = 5;
+
+    public List<String> getSqlForTable(TechnicalMappingReader techMap, String targetTable){
+        List<String> aggregates = new ArrayList<>();
+        List<String> profiles = new ArrayList<>();
+        for(Map.Entry<String,String> column: TransformTableGenerator.getColumnDefinitions(techMap, targetTable).entrySet()){
+            String name = column.getKey();
+            String alias = "profile_" + profiles.size();
+            aggregates.add(String.format("SUM(IF(`%s` IS NULL, 1, 0)) AS %s_nulls", name, alias));
+            if(column.getValue().contains("<")) {
+                profiles.add(String.format("'%s', '%s', %s_nulls, CAST(NULL AS STRING), CAST(NULL AS STRING)" +
+                                ", CAST(NULL AS BIGINT), CAST(NULL AS DOUBLE), CAST(NULL AS BIGINT), NULL"
+                        , name, column.getValue(), alias));
+                continue;
+            }
+            aggregates.add(String.format("CAST(MIN(`%s`) AS STRING) AS %s_min", name, alias));
+            aggregates.add(String.format("CAST(MAX(`%s`) AS STRING) AS %s_max", name, alias));
+            aggregates.add(String.format("compute_stats(CAST(`%s` AS STRING), %d) AS %s_stats", name, BIT_VECTORS, alias));
+            // each value is a sentence of one word, its most frequent words are the most frequent values
+            aggregates.add(String.format("context_ngrams(IF(`%s` IS NULL, NULL, ARRAY(ARRAY(CAST(`%s` AS STRING))))" +
+                    ", ARRAY(CAST(NULL AS STRING)), %d) AS %s_top", name, name, TOP_VALUES, alias));
+            profiles.add(String.format("'%s', '%s', %s_nulls, %s_min, %s_max, %s_stats.numdistinctvalues" +
+                            ", %s_stats.avglength, %s_stats.maxlength, %s_top"
+                    , name, column.getValue(), alias, alias, alias, alias, alias, alias, alias));
+        }
+
+        List<String> result = new ArrayList<>();
+        result.add("SET hive.exec.dynamic.partition=true");
+        result.add("SET hive.exec.dynamic.partition.mode=nonstrict");
+        result.add(String.format("CREATE TABLE IF NOT EXISTS %s (target_table STRING, column_name STRING" +
+                ", data_type STRING, row_count BIGINT, null_count BIGINT, min_value STRING, max_value STRING" +
+                ", distinct_count BIGINT, avg_length DOUBLE, max_length BIGINT" +
+                ", top_values ARRAY<STRUCT<ngram:ARRAY<STRING>,estfrequency:DOUBLE>>, profiled_at TIMESTAMP)" +
+                " PARTITIONED BY (run_date STRING) STORED AS ORC", PROFILE_TABLE));
+        result.add(String.format("INSERT INTO TABLE %s PARTITION (run_date) SELECT '%s', column_name, data_type" +
+                        ", row_count, null_count, min_value, max_value, distinct_count, avg_length, max_length" +
+                        ", top_values, CURRENT_TIMESTAMP, CAST(CURRENT_DATE AS STRING)" +
+                        " FROM (SELECT COUNT(*) AS row_count, \n%s\n FROM %s) profiled" +
+                        "\n LATERAL VIEW STACK(%d, %s) profiles AS column_name, data_type, null_count, min_value" +
+                        ", max_value, distinct_count, avg_length, max_length, top_values"
+                , PROFILE_TABLE, targetTable, String.join(", \n", aggregates), targetTable
+                , profiles.size(), String.join(", \n", profiles)));
+        return result;
+    }
+}
@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.dip.schemagenerator.sourcetable;
+
+/**
+ * SerDe reading JSON documents of source tables.
+ */
+public enum SerDeEnum {
+    /**
+     * Parses whole document of every row.
+     */
+    OPENX("openx", "org.openx.data.jsonserde.JsonSerDe"),
+    /**
+     * SerDe of jive-udf module, decodes only columns read by the query.
+     */
+    JIVE("jive", "uk.gov.dwp.uc.dip.udf.serde.JiveJsonSerDe");
+
+    private final String serDeName;
+    final String className;
+
+    SerDeEnum(String name, String className){
+        serDeName = name;
+        this.className = className;
+    }
+
+    /** Converts string to SerDeEnum, if no match found then returns OPENX
+     */
+    public static SerDeEnum getBySerDeName(String serDeName){
+        for (SerDeEnum serDe : SerDeEnum.values()){
+            if(serDe.serDeName.equalsIgnoreCase(serDeName)){
+                return serDe;
+            }
+        }
+
+        return OPENX;
+    }
+}
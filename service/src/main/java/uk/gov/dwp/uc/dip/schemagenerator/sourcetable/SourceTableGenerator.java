@@ -9,7 +9,9 @@ import uk.gov.dwp.uc.dip.schemagenerator.common.TechnicalMappingJSONSchema;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Created by paul on 12/12/16.
@@ -17,8 +19,23 @@ import java.util.List;
  */
 
 public class SourceTableGenerator {
+    public final static String SNAPSHOT_DATE_COLUMN = "snapshot_date";
+    public final static String DOCUMENT_COLUMN = "document";
+
+    // pairs of <merge setting changed by landing copy, its HIVE default>
+    private final static HashMap<String,String> MERGE_DEFAULTS = new LinkedHashMap<>();
+    static {
+        MERGE_DEFAULTS.put("hive.merge.mapfiles", "true");
+        MERGE_DEFAULTS.put("hive.merge.mapredfiles", "false");
+        MERGE_DEFAULTS.put("hive.merge.tezfiles", "false");
+        MERGE_DEFAULTS.put("hive.merge.size.per.task", "256000000");
+        MERGE_DEFAULTS.put("hive.merge.smallfiles.avgsize", "16000000");
+    }
+
     private String sourceJsonFileLocation;
     private String targetSourceTableName;
+    private SerDeEnum serDe = SerDeEnum.OPENX;
+    private boolean rawDocuments;
 
     public SourceTableGenerator(String sourceJsonFileLocation) {
 
@@ -26,15 +43,136 @@ public class SourceTableGenerator {
     }
 
     public List<String> generateSqlForTable(TechnicalMappingReader techMap, String targetTable, String sourceDatabase, String sourceCollection) {
-        List<String> result = new ArrayList<>();
         List<TechnicalMapping> sourceRules = techMap.getSourceFields(targetTable
                 ,sourceDatabase, sourceCollection);
 
         targetSourceTableName = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
                 String.format("src_%s_%s_%s",sourceDatabase, sourceCollection, targetTable));
 
+        return generateSql(sourceRules, sourceDatabase, sourceCollection);
+    }
+
+    /**
+     * Generates one source table per collection. Its schema is the union of fields of all target tables
+     * populated from the collection so the collection is read once for all of them.
+     */
+    public List<String> generateSqlForCollection(TechnicalMappingReader techMap, String sourceDatabase, String sourceCollection) {
+        List<TechnicalMapping> sourceRules = techMap.getSourceFields(sourceDatabase, sourceCollection);
+
+        targetSourceTableName = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
+                String.format("src_%s_%s",sourceDatabase, sourceCollection));
+
+        return generateSql(sourceRules, sourceDatabase, sourceCollection);
+    }
+
+    /**
+     * Generates source table of a collection the target table looks up fields from. It holds the looked up
+     * fields and the keys they are looked up by.
+     */
+    public List<String> generateLookupSqlForTable(TechnicalMappingReader techMap, String targetTable, String sourceDatabase, String sourceCollection) {
+        List<TechnicalMapping> sourceRules = techMap.getLookupSourceFields(targetTable, sourceDatabase, sourceCollection);
+
+        targetSourceTableName = getLookupTableName(sourceDatabase, sourceCollection, targetTable);
+
+        return generateSql(sourceRules, sourceDatabase, sourceCollection);
+    }
+
+    /**
+     * @return name of source table of a collection the target table looks up fields from
+     */
+    public static String getLookupTableName(String sourceDatabase, String sourceCollection, String targetTable) {
+        return TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
+                String.format("lkp_%s_%s_%s",sourceDatabase, sourceCollection, targetTable));
+    }
+
+    /**
+     * Generates source table of the collection and copies it into compacted ORC landing table so transforms,
+     * re-runs and ad-hoc queries read typed columnar copy instead of parsing JSON.
+     * Landing table becomes the table transforms read from.
+     * @param landingFileSize target size of landing files in bytes
+     */
+    public List<String> generateLandingSqlForCollection(TechnicalMappingReader techMap, String sourceDatabase,
+                                                        String sourceCollection, long landingFileSize) {
+        List<String> result = generateSqlForCollection(techMap, sourceDatabase, sourceCollection);
+        String sourceTableName = targetSourceTableName;
+
+        targetSourceTableName = getLandingTableName(sourceDatabase, sourceCollection);
+
+        // merge small files produced by many small exports into files of requested size
+        result.add("SET hive.merge.mapfiles=true");
+        result.add("SET hive.merge.mapredfiles=true");
+        result.add("SET hive.merge.tezfiles=true");
+        result.add(String.format("SET hive.merge.size.per.task=%d", landingFileSize));
+        result.add(String.format("SET hive.merge.smallfiles.avgsize=%d", landingFileSize));
+        result.add(String.format("DROP TABLE IF EXISTS %s\n", targetSourceTableName));
+        result.add(String.format("CREATE TABLE %s STORED AS ORC AS SELECT * FROM %s"
+                , targetSourceTableName, sourceTableName));
+        // merge settings are session-wide, so the ones of HIVE are restored for statements following the copy
+        for(Map.Entry<String,String> setting: MERGE_DEFAULTS.entrySet()){
+            result.add(String.format("SET %s=%s", setting.getKey(), setting.getValue()));
+        }
+
+        return result;
+    }
+
+    /**
+     * @return name of ORC landing table of the collection
+     */
+    public static String getLandingTableName(String sourceDatabase, String sourceCollection) {
+        return TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
+                String.format("lnd_%s_%s",sourceDatabase, sourceCollection));
+    }
+
+    /**
+     * Generates source table of the collection partitioned by snapshot date and attaches snapshot directories
+     * <location>/<date>/<db>/<collection> as partitions. Table is created once and kept, so running again
+     * only attaches new days. Table has to be dropped when the technical mapping changes its schema.
+     * @param snapshotDates dates of snapshot directories to attach
+     */
+    public List<String> generateSnapshotSqlForCollection(TechnicalMappingReader techMap, String sourceDatabase,
+                                                         String sourceCollection, List<String> snapshotDates) {
+        List<String> result = new ArrayList<>();
+        List<TechnicalMapping> sourceRules = techMap.getSourceFields(sourceDatabase, sourceCollection);
+
+        targetSourceTableName = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
+                String.format("src_%s_%s",sourceDatabase, sourceCollection));
+
+        result.add(String.format(
+                "CREATE EXTERNAL TABLE IF NOT EXISTS %s(%s)" +
+                        "\nPARTITIONED BY (%s STRING)" +
+                        "\nROW FORMAT SERDE '%s'" +
+                        "\nSTORED AS TEXTFILE", targetSourceTableName
+                , getColumnsSQL(createSchema(sourceRules)), SNAPSHOT_DATE_COLUMN, serDe.className));
+
+        String partitions = "";
+        for(String snapshotDate: snapshotDates){
+            partitions += String.format("\n PARTITION (%s='%s') LOCATION '%s/%s/%s/%s'", SNAPSHOT_DATE_COLUMN
+                    , snapshotDate, sourceJsonFileLocation, snapshotDate, sourceDatabase, sourceCollection);
+        }
+        result.add(String.format("ALTER TABLE %s ADD IF NOT EXISTS%s", targetSourceTableName, partitions));
+
+        return result;
+    }
+
+    private List<String> generateSql(List<TechnicalMapping> sourceRules, String sourceDatabase, String sourceCollection) {
+        List<String> result = new ArrayList<>();
+
         String sourceLocation = String.format("%s/%s/%s", sourceJsonFileLocation, sourceDatabase, sourceCollection);
 
+        result.add(String.format("DROP TABLE IF EXISTS %s\n",targetSourceTableName));
+
+        // create and output schema
+        result.add(createSourceTableSQL(createSchema(sourceRules), targetSourceTableName, sourceLocation));
+
+        return result;
+    }
+
+    /**
+     * @param sourceRules rules of the source table, sorted in place, lookup rules read other collections so
+     *                    they are left out
+     * @return schema of source table columns in their declaration order
+     */
+    public static TechnicalMappingJSONSchema createSchema(List<TechnicalMapping> sourceRules) {
         // iterate all rules and create schema
         TechnicalMappingJSONSchema schema = TechnicalMappingJSONSchema.Start();
         // must be sorted ASC before grouping
@@ -44,18 +182,30 @@ public class SourceTableGenerator {
             }
         });
         for(TechnicalMapping rule: sourceRules) {
-            schema.push(rule);
+            if(!rule.isLookup())
+                schema.push(rule);
         }
-
-        result.add(String.format("DROP TABLE IF EXISTS %s\n",targetSourceTableName));
-
-        // create and output schema
-        result.add(createSourceTableSQL(schema, targetSourceTableName, sourceLocation));
-
-        return result;
+        return schema;
     }
 
     private String createSourceTableSQL(TechnicalMappingJSONSchema schema, String targetTable, String dataLocation){
+        if(rawDocuments)
+            return String.format(
+                    "CREATE EXTERNAL TABLE %s(`%s` STRING)" +
+                            "\nSTORED AS TEXTFILE" +
+                            "\nLOCATION '%s'", targetTable, DOCUMENT_COLUMN, dataLocation);
+        return String.format(
+                "CREATE EXTERNAL TABLE %s(%s)" +
+                        "\nROW FORMAT SERDE '%s'" +
+                        "\nSTORED AS TEXTFILE" +
+                        "\nLOCATION '%s'", targetTable
+                ,getColumnsSQL(schema), serDe.className, dataLocation);
+    }
+
+    /**
+     * @return column definitions followed by _removed struct of the same columns
+     */
+    private String getColumnsSQL(TechnicalMappingJSONSchema schema){
         String columnDefinitions="";
 
         for(HashMap.Entry<String,TechnicalMappingJSONFieldSchema> entry: schema.children.entrySet()){
@@ -77,14 +227,9 @@ public class SourceTableGenerator {
         }
 
         return String.format(
-                "CREATE EXTERNAL TABLE %s(" +
-                        "\n%s" +
+                "\n%s" +
                         ",`_removed` STRUCT<%s" +
-                        ">)" +
-                        "\nROW FORMAT SERDE 'org.openx.data.jsonserde.JsonSerDe'" +
-                        "\nSTORED AS TEXTFILE" +
-                        "\nLOCATION '%s'", targetTable
-                ,columnDefinitions, columnDefinitionsRemoved, dataLocation);
+                        ">", columnDefinitions, columnDefinitionsRemoved);
     }
 
     /*
@@ -170,6 +315,21 @@ public class SourceTableGenerator {
                 fieldSchema.fieldName, nameTypeSeparator, fieldSchema.userDefinedType);
     }
 
+    /**
+     * @param serDe SerDe of generated source tables, JIVE requires jive-udf jar added to the session
+     */
+    public void setSerDe(SerDeEnum serDe) {
+        this.serDe = serDe;
+    }
+
+    /**
+     * @param rawDocuments when set, source tables have single document column holding JSON text of the document
+     *                     so it is parsed by jive_flatten rather than by SerDe
+     */
+    public void setRawDocuments(boolean rawDocuments) {
+        this.rawDocuments = rawDocuments;
+    }
+
     public String getTargetSourceTableName() {
         return targetSourceTableName;
     }
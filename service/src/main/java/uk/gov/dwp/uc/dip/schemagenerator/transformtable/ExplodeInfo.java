@@ -83,13 +83,17 @@ class ExplodeInfo {
        * if it's not present then we return jsonpath (First) and null (Second)
        */
     static ExplodeInfo createExplodeInfo(TechnicalMapping rule){
+        return createExplodeInfo(rule.jsonPath);
+    }
+
+    static ExplodeInfo createExplodeInfo(String jsonPath){
         //
-        PathSplitByIndexOperatorInfo splitPathByExplodeOperator = JsonPathUtils.findFirstExplodeOperator(rule.jsonPath);
+        PathSplitByIndexOperatorInfo splitPathByExplodeOperator = JsonPathUtils.findFirstExplodeOperator(jsonPath);
 
         //
         if(!splitPathByExplodeOperator.exploitable){
             // nothing to explode: column, alias, path, not map
-            return new ExplodeInfo(rule.jsonPath, null, null, false);
+            return new ExplodeInfo(jsonPath, null, null, false);
         }
         ExplodeInfo explodeInfo = new ExplodeInfo();
 
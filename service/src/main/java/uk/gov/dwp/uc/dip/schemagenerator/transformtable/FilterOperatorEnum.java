@@ -0,0 +1,36 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+/**
+ * Comparison of target table filter, IS_NULL and IS_NOT_NULL take no value.
+ */
+public enum FilterOperatorEnum {
+    EQUALS("="),
+    NOT_EQUALS("<>"),
+    LESS("<"),
+    LESS_OR_EQUALS("<="),
+    GREATER(">"),
+    GREATER_OR_EQUALS(">="),
+    IN("IN"),
+    NOT_IN("NOT IN"),
+    LIKE("LIKE"),
+    IS_NULL("IS NULL"),
+    IS_NOT_NULL("IS NOT NULL");
+
+    final String sql;
+
+    FilterOperatorEnum(String sql){
+        this.sql = sql;
+    }
+
+    /** Converts SQL operator e.g. = or not in to FilterOperatorEnum, if no match found then returns null
+     */
+    public static FilterOperatorEnum getByOperatorName(String operatorName){
+        for (FilterOperatorEnum operator : FilterOperatorEnum.values()){
+            if(operator.sql.equalsIgnoreCase(operatorName.trim().replaceAll("\\s+", " "))){
+                return operator;
+            }
+        }
+
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+/**
+ * HIVE functions of jive-udf module used instead of SQL templates when enabled.
+ * FLATTEN is table generating function reading raw documents when flattening is enabled.
+ */
+public enum JiveFunctionEnum {
+    TIMESTAMP("jive_timestamp", "uk.gov.dwp.uc.dip.udf.GenericUDFMongoTimestamp"),
+    DATE("jive_date", "uk.gov.dwp.uc.dip.udf.GenericUDFCompactDate"),
+    BOOLEAN("jive_boolean", "uk.gov.dwp.uc.dip.udf.GenericUDFMongoBoolean"),
+    FLATTEN("jive_flatten", "uk.gov.dwp.uc.dip.udf.GenericUDTFFlatten");
+
+    final String functionName;
+    final String className;
+
+    JiveFunctionEnum(String functionName, String className){
+        this.functionName = functionName;
+        this.className = className;
+    }
+
+    String call(String argument){
+        return String.format("%s(%s)", functionName, argument);
+    }
+}
@@ -0,0 +1,38 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+/**
+ * How target table is materialized.
+ */
+public enum MaterializationEnum {
+    /**
+     * Table is rebuilt by every run.
+     */
+    TABLE("table"),
+    /**
+     * View over the source table, transformed whenever it is queried.
+     */
+    VIEW("view"),
+    /**
+     * Materialized view used by query rewriting and rebuilt by every run, incrementally when HIVE can.
+     * CREATE MATERIALIZED VIEW and ALTER MATERIALIZED VIEW ... REBUILD need HIVE 3.
+     */
+    MATERIALIZED("materialized");
+
+    private final String materializationName;
+
+    MaterializationEnum(String name){
+        materializationName = name;
+    }
+
+    /** Converts string to MaterializationEnum, if no match found then returns TABLE
+     */
+    public static MaterializationEnum getByMaterializationName(String materializationName){
+        for (MaterializationEnum materialization : MaterializationEnum.values()){
+            if(materialization.materializationName.equalsIgnoreCase(materializationName)){
+                return materialization;
+            }
+        }
+
+        return TABLE;
+    }
+}
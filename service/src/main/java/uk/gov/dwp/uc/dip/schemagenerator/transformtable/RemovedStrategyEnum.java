@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+/**
+ * How logically deleted documents, which keep their content under _removed, are sourced.
+ */
+public enum RemovedStrategyEnum {
+    /**
+     * Every column is wrapped with COALESCE(_removed.column, column) and every array under _removed
+     * is exploded next to its live version.
+     */
+    COALESCE_COLUMNS("columns"),
+    /**
+     * Live or removed document is selected once per source row in an inner query so columns and lateral
+     * views are generated once.
+     */
+    SELECT_DOCUMENT("document");
+
+    private final String strategyName;
+
+    RemovedStrategyEnum(String name){
+        strategyName = name;
+    }
+
+    /** Converts string to RemovedStrategyEnum, if no match found then returns COALESCE_COLUMNS
+     */
+    public static RemovedStrategyEnum getByStrategyName(String strategyName){
+        for (RemovedStrategyEnum strategy : RemovedStrategyEnum.values()){
+            if(strategy.strategyName.equalsIgnoreCase(strategyName)){
+                return strategy;
+            }
+        }
+
+        return COALESCE_COLUMNS;
+    }
+}
@@ -0,0 +1,272 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
+import uk.gov.dwp.uc.dip.schemagenerator.common.Tuple;
+
+import java.util.*;
+
+/**
+ * Storage of one target table driven by meta of its technical mapping rules:
+ * - partition: table is partitioned by the column
+ * - partition=year|month|date: table is partitioned by year, month or date of the column in column_year etc.
+ * - bucket=N: table is clustered by the column into N buckets
+ * - sort: rows are sorted by the column
+ * - bloom: ORC bloom filter is created for the column
+ * - orc.*=value: ORC table property e.g. orc.compress=SNAPPY or orc.stripe.size=67108864
+ * - key: column identifies row when table is loaded incrementally
+ * - materialize=table|view|materialized: how the table is materialized, meta of any column applies to the table
+ * - nested: fields of arrays are kept as ARRAY<STRUCT> column per array instead of exploded into rows,
+ *   meta of any column applies to the table
+ */
+class StorageProfile {
+    private final static String PARTITION = "partition";
+    private final static String BUCKET = "bucket";
+    private final static String SORT = "sort";
+    private final static String BLOOM = "bloom";
+    private final static String ORC_PROPERTY_PREFIX = "orc.";
+    private final static String KEY = "key";
+    private final static String MATERIALIZE = "materialize";
+    private final static String NESTED = "nested";
+
+    // buckets of transactional table not bucketed by its profile
+    private final static int TRANSACTIONAL_BUCKETS = 8;
+    // number of delta directories triggering automatic minor compaction of transactional table
+    private final static int TRANSACTIONAL_DELTA_NUM_THRESHOLD = 10;
+
+    // length of string representation of the timestamp or date prefix holding the unit
+    private final static HashMap<String,Integer> PARTITION_UNITS = new LinkedHashMap<>();
+    static {
+        PARTITION_UNITS.put("year", 4);
+        PARTITION_UNITS.put("month", 7);
+        PARTITION_UNITS.put("date", 10);
+    }
+
+    // pairs of <partition column, HIVE type> in technical mapping order
+    HashMap<String,String> partitionColumns = new LinkedHashMap<>();
+    // pairs of <partition column, <target field it is derived from, length of the prefix>>
+    private HashMap<String,Tuple<String,Integer>> derivedPartitionColumns = new LinkedHashMap<>();
+    private List<String> bucketColumns = new ArrayList<>();
+    private int buckets;
+    private List<String> sortColumns = new ArrayList<>();
+    private List<String> bloomFilterColumns = new ArrayList<>();
+    private HashMap<String,String> tableProperties = new LinkedHashMap<>();
+    // columns identifying row of incrementally loaded table
+    List<String> keyColumns = new ArrayList<>();
+    private MaterializationEnum materialization;
+    boolean nested;
+
+    static StorageProfile create(List<TechnicalMapping> rules){
+        StorageProfile profile = new StorageProfile();
+
+        for(TechnicalMapping rule: rules){
+            String column = rule.targetFieldName;
+            for(Map.Entry<String,String> meta: rule.getMeta().entrySet()){
+                String value = meta.getValue();
+                switch (meta.getKey()){
+                    case PARTITION:
+                        if(value.isEmpty()) {
+                            profile.partitionColumns.putIfAbsent(column, rule.getTargetType());
+                        }else if(PARTITION_UNITS.containsKey(value.toLowerCase())) {
+                            String partitionColumn = String.format("%s_%s", column, value.toLowerCase());
+                            profile.partitionColumns.putIfAbsent(partitionColumn, "STRING");
+                            profile.derivedPartitionColumns.putIfAbsent(partitionColumn,
+                                    new Tuple<>(column, PARTITION_UNITS.get(value.toLowerCase())));
+                        }else {
+                            throw new IllegalArgumentException(String.format("%s column %s has %s=%s meta, " +
+                                    "partition unit has to be one of %s", rule.targetTableName, column, PARTITION
+                                    , value, PARTITION_UNITS.keySet()));
+                        }
+                        break;
+                    case BUCKET:
+                        if(!profile.bucketColumns.contains(column))
+                            profile.bucketColumns.add(column);
+                        profile.buckets = Math.max(profile.buckets, getBuckets(rule, value));
+                        break;
+                    case SORT:
+                        if(!profile.sortColumns.contains(column))
+                            profile.sortColumns.add(column);
+                        break;
+                    case KEY:
+                        if(!profile.keyColumns.contains(column))
+                            profile.keyColumns.add(column);
+                        break;
+                    case MATERIALIZE:
+                        profile.materialization = MaterializationEnum.getByMaterializationName(value);
+                        break;
+                    case NESTED:
+                        profile.nested = true;
+                        break;
+                    case BLOOM:
+                        if(!profile.bloomFilterColumns.contains(column))
+                            profile.bloomFilterColumns.add(column);
+                        break;
+                    default:
+                        if(meta.getKey().startsWith(ORC_PROPERTY_PREFIX))
+                            profile.tableProperties.put(meta.getKey(), value);
+                }
+            }
+        }
+        if(profile.bloomFilterColumns.size() > 0)
+            profile.tableProperties.put("orc.bloom.filter.columns", String.join(",", profile.bloomFilterColumns));
+
+        return profile;
+    }
+
+    /**
+     * @return number of buckets set by bucket=n meta of the rule
+     */
+    private static int getBuckets(TechnicalMapping rule, String value){
+        try {
+            int buckets = Integer.parseInt(value);
+            if(buckets > 0)
+                return buckets;
+        } catch (NumberFormatException ignored) {
+        }
+        throw new IllegalArgumentException(String.format("%s column %s has %s meta, buckets have to be set " +
+                "by %s=n where n is positive number", rule.targetTableName, rule.targetFieldName
+                , value.isEmpty() ? BUCKET : BUCKET + "=" + value, BUCKET));
+    }
+
+    boolean isEmpty(){
+        return partitionColumns.isEmpty() && bucketColumns.isEmpty() && sortColumns.isEmpty()
+                && tableProperties.isEmpty();
+    }
+
+    /**
+     * @param defaultMaterialization materialization of table which meta doesn't set it
+     */
+    MaterializationEnum getMaterialization(MaterializationEnum defaultMaterialization){
+        return materialization == null ? defaultMaterialization : materialization;
+    }
+
+    /**
+     * @return partition column definitions separated by comma
+     */
+    String getPartitionColumnsSQL(){
+        String columnsSQL = "";
+        for(Map.Entry<String,String> partitionColumn: partitionColumns.entrySet()){
+            if(columnsSQL.length() > 0)
+                columnsSQL += ", ";
+            columnsSQL += String.format("%s %s", partitionColumn.getKey(), partitionColumn.getValue());
+        }
+        return columnsSQL;
+    }
+
+    /**
+     * @return CLUSTERED BY clause of bucketed table
+     */
+    String getClusteredBySQL(){
+        if(bucketColumns.isEmpty())
+            return "";
+        String sortedBy = sortColumns.isEmpty() ? "" : String.format(" SORTED BY (%s)", String.join(", ", sortColumns));
+        return String.format(" CLUSTERED BY (%s)%s INTO %d BUCKETS", String.join(", ", bucketColumns), sortedBy, buckets);
+    }
+
+    /**
+     * ORC table properties only apply to ORC tables and nested columns are read best from ORC, so such table
+     * is stored as ORC unless stated otherwise
+     */
+    String getStoredAs(String storeTableAs){
+        if(storeTableAs.isEmpty() && (!tableProperties.isEmpty() || nested))
+            return "STORED AS ORC";
+        return storeTableAs;
+    }
+
+    /**
+     * Transactional table has to be bucketed ORC table, when it is not bucketed by its profile it is bucketed
+     * by its key columns.
+     * @return CLUSTERED BY, STORED AS and TBLPROPERTIES clauses of transactional table
+     */
+    String getTransactionalStorageSQL(){
+        String clusteredBy = getClusteredBySQL();
+        if(clusteredBy.isEmpty())
+            clusteredBy = String.format(" CLUSTERED BY (%s) INTO %d BUCKETS"
+                    , String.join(", ", keyColumns), TRANSACTIONAL_BUCKETS);
+
+        HashMap<String,String> properties = new LinkedHashMap<>();
+        properties.put("transactional", "true");
+        properties.put("compactorthreshold.hive.compactor.delta.num.threshold"
+                , String.valueOf(TRANSACTIONAL_DELTA_NUM_THRESHOLD));
+        properties.putAll(tableProperties);
+
+        return String.format("%s STORED AS ORC%s", clusteredBy, getTablePropertiesSQL(properties));
+    }
+
+    /**
+     * @return columns which can't be updated by MERGE
+     */
+    Set<String> getNotUpdatableColumns(){
+        Set<String> columns = new HashSet<>(keyColumns);
+        columns.addAll(bucketColumns);
+        columns.addAll(partitionColumns.keySet());
+        return columns;
+    }
+
+    String getTablePropertiesSQL(){
+        return getTablePropertiesSQL(tableProperties);
+    }
+
+    private static String getTablePropertiesSQL(HashMap<String,String> tableProperties){
+        if(tableProperties.isEmpty())
+            return "";
+        String propertiesSQL = "";
+        for(Map.Entry<String,String> property: tableProperties.entrySet()){
+            if(propertiesSQL.length() > 0)
+                propertiesSQL += ", ";
+            propertiesSQL += String.format("'%s'='%s'", property.getKey(), property.getValue());
+        }
+        return String.format(" TBLPROPERTIES (%s)", propertiesSQL);
+    }
+
+    /**
+     * @return partition values selected after target columns, in order of partition columns
+     */
+    String getPartitionSelectSQL(TransformQuery query){
+        String selectSQL = "";
+        for(Map.Entry<String,String> partitionColumn: partitionColumns.entrySet()){
+            String column = partitionColumn.getKey();
+            String value;
+            if(derivedPartitionColumns.containsKey(column)) {
+                Tuple<String, Integer> derived = derivedPartitionColumns.get(column);
+                value = query.columns.containsKey(derived.x)
+                        ? String.format("SUBSTR(CAST(%s AS STRING), 1, %d)", query.columns.get(derived.x), derived.y)
+                        : "CAST(NULL as STRING)";
+            }else {
+                value = query.columns.containsKey(column)
+                        ? query.columns.get(column)
+                        : String.format("CAST(NULL as %s)", partitionColumn.getValue());
+            }
+            selectSQL += String.format(", %s as %s", value, column);
+        }
+        return selectSQL;
+    }
+
+    /**
+     * Rows of the same partition are written by the same reducer and sorted so ORC stripes hold narrow
+     * ranges of sort columns. Bucketed table is distributed and sorted by HIVE itself.
+     */
+    String getDistributeAndSortSQL(){
+        if(!bucketColumns.isEmpty())
+            return "";
+        String sql = "";
+        if(!partitionColumns.isEmpty())
+            sql += String.format("\n DISTRIBUTE BY %s", String.join(", ", partitionColumns.keySet()));
+        if(!sortColumns.isEmpty())
+            sql += String.format("\n SORT BY %s", String.join(", ", sortColumns));
+        return sql;
+    }
+
+    List<String> getSettings(){
+        List<String> settings = new ArrayList<>();
+        if(!partitionColumns.isEmpty()){
+            settings.add("SET hive.exec.dynamic.partition=true");
+            settings.add("SET hive.exec.dynamic.partition.mode=nonstrict");
+        }
+        if(!bucketColumns.isEmpty()){
+            settings.add("SET hive.enforce.bucketing=true");
+            if(!sortColumns.isEmpty())
+                settings.add("SET hive.enforce.sorting=true");
+        }
+        return settings;
+    }
+}
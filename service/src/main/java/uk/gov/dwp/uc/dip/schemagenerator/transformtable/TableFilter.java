@@ -0,0 +1,29 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+/**
+ * Predicate filtering rows of a target table: json path mapped by the table compared with SQL literal,
+ * e.g. status = 'ACTIVE'. Predicates on paths which aren't exploded filter documents before lateral views,
+ * predicates on exploded paths filter exploded rows.
+ */
+public class TableFilter {
+    final String jsonPath;
+    final FilterOperatorEnum operator;
+    // SQL literal or list of literals for IN, empty for IS NULL and IS NOT NULL
+    final String value;
+
+    public TableFilter(String jsonPath, FilterOperatorEnum operator, String value){
+        this.jsonPath = jsonPath;
+        this.operator = operator;
+        this.value = value;
+    }
+
+    /**
+     * @param column source expression of the json path
+     * @return predicate comparing the expression with the value
+     */
+    String getSQL(String column){
+        if(value.isEmpty())
+            return String.format("%s %s", column, operator.sql);
+        return String.format("%s %s %s", column, operator.sql, value);
+    }
+}
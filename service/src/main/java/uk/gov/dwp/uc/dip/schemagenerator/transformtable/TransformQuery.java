@@ -0,0 +1,220 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+import java.util.*;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+/**
+ * SELECT columns and LATERAL VIEWs generated for one target table from one source table.
+ * Kept apart from the statement so the same query can be rendered as CREATE TABLE AS SELECT
+ * or as one of many INSERTs sharing the same FROM clause.
+ */
+class TransformQuery {
+    // keeps pairs of <target field name, column expression> in technical mapping order
+    HashMap<String,String> columns = new LinkedHashMap<>();
+
+    // LATERAL VIEW ... clauses in declaration order
+    List<String> lateralViews = new ArrayList<>();
+
+    // keeps pairs of <LATERAL VIEW EXPLODE clause, its output columns>
+    HashMap<String,List<String>> explodeOutputs = new HashMap<>();
+
+    // keeps pairs of <JSON expression, keys> parsed once by JSON_TUPLE lateral view
+    HashMap<String,List<String>> jsonTuples = new LinkedHashMap<>();
+
+    // keeps pairs of <alias, raw source expression> selected by inner query when source expressions are projected
+    HashMap<String,String> projections = new LinkedHashMap<>();
+
+    // predicates on exploded source paths evaluated after LATERAL VIEWs
+    List<String> filters = new ArrayList<>();
+
+    // columns identifying document of exploded rows collected into nested columns
+    List<String> groupBy = new ArrayList<>();
+
+    /**
+     * Registers key to be extracted from JSON expression by JSON_TUPLE lateral view
+     * @param expression JSON expression
+     * @param key top level key
+     * @return alias of JSON_TUPLE output holding the key
+     */
+    String getJsonTupleOutput(String expression, String key){
+        List<String> keys = jsonTuples.computeIfAbsent(expression, e -> new ArrayList<>());
+        if(!keys.contains(key))
+            keys.add(key);
+        return String.format("%s_%d", getJsonTupleAlias(expression), keys.indexOf(key));
+    }
+
+    private String getJsonTupleAlias(String expression){
+        return String.format("json_tuple_%d", new ArrayList<>(jsonTuples.keySet()).indexOf(expression));
+    }
+
+    /**
+     * Adds one JSON_TUPLE lateral view per JSON expression so each expression is parsed once per row
+     */
+    void addJsonTupleLateralViews(){
+        for(Map.Entry<String,List<String>> jsonTuple: jsonTuples.entrySet()){
+            String alias = getJsonTupleAlias(jsonTuple.getKey());
+            String keys = "";
+            String outputs = "";
+            for(int i=0; i<jsonTuple.getValue().size(); i++){
+                keys += String.format(", '%s'", jsonTuple.getValue().get(i));
+                if(outputs.length() > 0)
+                    outputs += ", ";
+                outputs += String.format("%s_%d", alias, i);
+            }
+            lateralViews.add(String.format("LATERAL VIEW OUTER JSON_TUPLE(%s%s) view_%s AS %s \n"
+                    , jsonTuple.getKey(), keys, alias, outputs));
+        }
+    }
+
+    /**
+     * Replaces source expression with an alias selected by inner query so the expression is computed once
+     * however many times conversion refers to it.
+     * @param expression raw source expression
+     * @param aliases pairs of <raw source expression, alias> shared by queries reading the same inner query
+     * @return alias of the expression
+     */
+    String project(String expression, HashMap<String,String> aliases){
+        String alias = aliases.computeIfAbsent(expression, e -> String.format("projected_%d", aliases.size()));
+        projections.put(alias, expression);
+        return alias;
+    }
+
+    boolean isProjected(){
+        return projections.size() > 0;
+    }
+
+    /**
+     * @return projections as 'expression as alias' separated by comma
+     */
+    String getProjectionSQL(){
+        return getProjectionSQL(projections);
+    }
+
+    static String getProjectionSQL(HashMap<String,String> projections){
+        String projectionSQL = "";
+        for(Map.Entry<String,String> projection: projections.entrySet()){
+            if (projectionSQL.length() > 0)
+                projectionSQL += ", ";
+            projectionSQL += String.format("\n%s as %s", projection.getValue(), projection.getKey());
+        }
+        return projectionSQL;
+    }
+
+    /**
+     * @return columns as 'expression as target_field' separated by comma
+     */
+    String getSelectSQL(){
+        String selectSQL = "";
+        for(Map.Entry<String,String> column: columns.entrySet()){
+            if (selectSQL.length() > 0)
+                selectSQL += ", ";
+            selectSQL += String.format("%s as %s", column.getValue(), column.getKey());
+        }
+        return selectSQL;
+    }
+
+    /**
+     * Renders columns in order of provided target table definition. Columns not sourced by this query are
+     * selected as NULL so the result can be inserted into target table populated from many sources.
+     * @param columnDefinitions target field name to HIVE type
+     */
+    String getSelectSQL(HashMap<String,String> columnDefinitions){
+        String selectSQL = "";
+        for(Map.Entry<String,String> definition: columnDefinitions.entrySet()){
+            if (selectSQL.length() > 0)
+                selectSQL += ", ";
+            String column = columns.get(definition.getKey());
+            if(column == null)
+                column = String.format("CAST(NULL as %s)", definition.getValue());
+            selectSQL += String.format("%s as %s", column, definition.getKey());
+        }
+        return selectSQL;
+    }
+
+    /**
+     * @param where WHERE clause of the target table or null when it has none
+     * @return WHERE clause followed by filters of the query, empty when there are neither
+     */
+    String getWhereSQL(String where){
+        if(filters.isEmpty())
+            return where == null ? "" : where;
+        String predicates = String.join(" AND ", filters);
+        if(where == null)
+            return "WHERE " + predicates;
+        // where clause may hold OR so its condition is kept apart from the filters
+        String clause = where.trim();
+        if(clause.regionMatches(true, 0, "WHERE ", 0, 6))
+            return String.format("WHERE (%s) AND %s", clause.substring(6).trim(), predicates);
+        return String.format("%s AND %s", where, predicates);
+    }
+
+    /**
+     * @return GROUP BY clause, empty when the query doesn't collect exploded rows
+     */
+    String getGroupBySQL(){
+        if(groupBy.isEmpty())
+            return "";
+        return String.format("\n GROUP BY %s", String.join(", ", groupBy));
+    }
+
+    /**
+     * @return LATERAL VIEW EXPLODE clauses leading lateral views, they read source columns or outputs of
+     * preceding ones only
+     */
+    List<String> getLeadingExplodes(){
+        List<String> explodes = new ArrayList<>();
+        for(String lateralView: lateralViews){
+            if(!explodeOutputs.containsKey(lateralView))
+                break;
+            explodes.add(lateralView);
+        }
+        return explodes;
+    }
+
+    /**
+     * @param field top level field of the source table
+     * @return true when columns, lateral views, projections or filters of the query read the field
+     */
+    boolean refersTo(String field){
+        // nested field of the same name is preceded by its parent
+        Pattern reference = Pattern.compile(String.format("(?<!\\.)%s", Pattern.quote(String.format("`%s`", field))));
+        List<String> expressions = new ArrayList<>(columns.values());
+        expressions.addAll(lateralViews);
+        expressions.addAll(projections.values());
+        expressions.addAll(filters);
+        for(String expression: expressions){
+            if(reference.matcher(expression).find())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Rewrites columns, lateral views, projections and filters of the query e.g. to rename a column they read
+     */
+    void rewrite(UnaryOperator<String> rewrite){
+        columns.replaceAll((targetField, column) -> rewrite.apply(column));
+        projections.replaceAll((alias, expression) -> rewrite.apply(expression));
+        filters.replaceAll(rewrite);
+        groupBy.replaceAll(rewrite);
+        HashMap<String,List<String>> rewrittenOutputs = new HashMap<>();
+        for(int i=0; i<lateralViews.size(); i++){
+            String lateralView = rewrite.apply(lateralViews.get(i));
+            if(explodeOutputs.containsKey(lateralViews.get(i)))
+                rewrittenOutputs.put(lateralView, explodeOutputs.get(lateralViews.get(i)));
+            lateralViews.set(i, lateralView);
+        }
+        explodeOutputs = rewrittenOutputs;
+    }
+
+    String getLateralViewsSQL(){
+        String allExplodedSQL = "";
+        for(String lateralView: lateralViews){
+            if (allExplodedSQL.length() > 0)
+                allExplodedSQL += " ";
+            allExplodedSQL += lateralView;
+        }
+        return allExplodedSQL;
+    }
+}
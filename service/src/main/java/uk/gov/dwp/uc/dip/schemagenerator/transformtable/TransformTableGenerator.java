@@ -4,8 +4,13 @@ import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMappingReader;
 import uk.gov.dwp.uc.dip.schemagenerator.common.JsonPathUtils;
 import uk.gov.dwp.uc.dip.schemagenerator.common.TechnicalMappingJSONFieldSchema;
+import uk.gov.dwp.uc.dip.schemagenerator.common.TechnicalMappingJSONSchema;
+import uk.gov.dwp.uc.dip.schemagenerator.datachecks.DataCheckEnum;
+import uk.gov.dwp.uc.dip.schemagenerator.sourcetable.SourceTableGenerator;
 
 import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import uk.gov.dwp.uc.dip.schemagenerator.common.Tuple;
@@ -22,10 +27,118 @@ public class TransformTableGenerator {
      */
     boolean removedEnabled=true;
 
+    private RemovedStrategyEnum removedStrategy = RemovedStrategyEnum.COALESCE_COLUMNS;
+
+    /**
+     * When set, sibling arrays are exploded together by position instead of producing their cross product.
+     */
+    private boolean zipSiblingExplodes;
+
+    /**
+     * When set, raw source expressions are selected once by inner query and converted by outer query.
+     */
+    private boolean projectSourceExpressions;
+
+    /**
+     * When set, keys of the same super path are extracted by single JSON_TUPLE instead of GET_JSON_OBJECT per key.
+     */
+    private boolean jsonTuple;
+
+    /**
+     * When set, source table is partitioned by snapshot date, only snapshots of the range are read and target
+     * tables are partitioned by snapshot date.
+     */
+    private String snapshotFrom;
+    private String snapshotTo;
+
+    /**
+     * When set, tables with key columns are merged with documents changed since the last load instead of rebuilt.
+     */
+    private boolean incremental;
+    private boolean compactIncremental;
+
+    /**
+     * When set, only the latest version of each document identified by the key path is transformed.
+     */
+    private String dedupKey;
+
+    /**
+     * Materialization of target tables which don't set their own with materialize meta.
+     */
+    private MaterializationEnum materialization = MaterializationEnum.TABLE;
+
+    /**
+     * When set, conversions call functions of jive-udf module instead of SQL templates.
+     */
+    private boolean udf;
+
+    /**
+     * When set, source table holds raw documents and each target table is flattened from them by single
+     * jive_flatten call instead of LATERAL VIEW EXPLODEs over typed source columns.
+     */
+    private boolean flatten;
+
+    /**
+     * When set, flattened documents which aren't JSON objects are skipped instead of failing the job.
+     */
+    private boolean skipMalformed;
+
+    /**
+     * When set, explodes which target tables of a collection have in common are materialized once into a temporary
+     * table the tables read instead of exploding the source table each.
+     */
+    private boolean shareExplodes;
+
+    /**
+     * When set, arrays of structs are exploded by INLINE into a column per struct field instead of EXPLODE into
+     * a struct which every column reads its field of.
+     */
+    private boolean inline;
+
+    /**
+     * Rules source tables were created from by source table name, they give fields of structs INLINE outputs.
+     */
+    private HashMap<String,List<TechnicalMapping>> sourceTableRules = new HashMap<>();
+
+    /**
+     * Filters of target tables by target table name.
+     */
+    private HashMap<String,List<TableFilter>> filters = new HashMap<>();
+
     final static Logger logger = Logger.getLogger(TransformTableGenerator.class.getName());
 
     final static String REMOVED = "_removed.";
 
+    final static String REMOVED_ALIAS_PREFIX = "removed_";
+
+    final static String EXPLODED_ALIAS_PREFIX = "exploded_";
+
+    final static String WATERMARK_TABLE = "jive_watermark";
+
+    final static String LAST_MODIFIED_COLUMN = "last_modified_ts";
+
+    final static String REMOVED_COLUMN = "removed_ts";
+
+    final static String VERSION_COLUMN = "version";
+
+    final static String VERSION_PATH = "_version";
+
+    final static String SOURCE_COLLECTION_COLUMN = "source_collection";
+
+    /**
+     * Generates statements registering functions of jive-udf module for the session
+     * @param udfJar location of jive-udf jar added to the session, none when empty
+     */
+    public static List<String> generateCreateFunctionSql(String udfJar){
+        List<String> result = new ArrayList<>();
+        if(udfJar != null && !udfJar.isEmpty())
+            result.add(String.format("ADD JAR %s", udfJar));
+        for(JiveFunctionEnum function: JiveFunctionEnum.values()){
+            result.add(String.format("CREATE TEMPORARY FUNCTION %s AS '%s'", function.functionName, function.className));
+        }
+        return result;
+    }
+
     public List<String> generateSqlForTable(TechnicalMappingReader techMap,
                                       String targetTable,
                                       String sourceTableName,
@@ -35,14 +148,610 @@ public class TransformTableGenerator {
 
         // get all rules related to the target table
         List<TechnicalMapping> targetRules = techMap.getTargetColumns(targetTable);
+        StorageProfile profile = StorageProfile.create(targetRules);
+        MaterializationEnum tableMaterialization = profile.getMaterialization(materialization);
+        if(tableMaterialization != MaterializationEnum.TABLE)
+            return generateViewSql(sourceTableName, targetRules, targetTable, wheres, profile, tableMaterialization);
+
+        // table without key can't be merged so it is rebuilt
+        boolean mergeChanges = incremental && !profile.keyColumns.isEmpty();
 
-        result.add(String.format("DROP TABLE IF EXISTS %s",targetTable));
+        if(mergeChanges) {
+            // rows of elements removed from an array would never be deleted
+            for(TechnicalMapping rule: targetRules){
+                if(isExploded(rule.jsonPath))
+                    throw new IllegalStateException(String.format("%s explodes %s so it can't be merged incrementally"
+                            , targetTable, rule.jsonPath));
+            }
+            result.addAll(generateCreateTransactionalTableSql(techMap, targetTable, profile));
+        }else if(profile.isEmpty()) {
+            result.add(String.format("DROP TABLE IF EXISTS %s", targetTable));
+        }else {
+            // partitioned or bucketed table can't be created with CREATE TABLE AS SELECT
+            result.addAll(generateCreateTableSql(techMap, targetTable, storeTableAs));
+        }
         //
-        result.add(getTransformSQL(sourceTableName,targetRules, targetTable, storeTableAs, wheres));
+        result.add(getTransformSQL(sourceTableName,targetRules, targetTable, storeTableAs, wheres, profile, mergeChanges
+                , MaterializationEnum.TABLE));
+
+        if(mergeChanges)
+            result.addAll(generateMergeSql(techMap, targetTable, profile));
         
         return result;
     }
 
+    /**
+     * Generates target table populated from more than one collection with a single statement which UNION ALLs
+     * transforms of all collections, so the table is written once and the transforms run in parallel.
+     * source_collection column holds database and collection of each row.
+     * @param sourceTableNames pairs of <source table name, <source database, source collection>>
+     */
+    public List<String> generateUnionSqlForTable(TechnicalMappingReader techMap,
+                                                 String targetTable,
+                                                 HashMap<String,Tuple<String,String>> sourceTableNames,
+                                                 String storeTableAs,
+                                                 HashMap<String,String> wheres) {
+        List<String> result = new ArrayList<>();
+        StorageProfile profile = StorageProfile.create(techMap.getTargetColumns(targetTable));
+        HashMap<String,String> columnDefinitions = getColumnDefinitions(techMap, targetTable, profile);
+        // changes of all collections would have to be staged before a single merge
+        if(incremental && !profile.keyColumns.isEmpty())
+            throw new IllegalStateException(targetTable + " is populated from more than one collection so it " +
+                    "can't be merged incrementally");
+
+        String statement;
+        if(profile.isEmpty()) {
+            result.add(String.format("DROP TABLE IF EXISTS %s", targetTable));
+            statement = String.format("CREATE TABLE %s %s AS"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), profile.getStoredAs(storeTableAs));
+        }else {
+            result.addAll(generateCreateTableSql(techMap, targetTable, storeTableAs));
+            statement = String.format("INSERT OVERWRITE TABLE %s%s"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable)
+                    , getPartitionSQL(new ArrayList<>(profile.partitionColumns.keySet())));
+        }
+
+        // every collection selects all columns of the target table in the same order
+        List<String> transforms = new ArrayList<>();
+        for(Map.Entry<String,Tuple<String,String>> source: sourceTableNames.entrySet()){
+            String sourceTable = source.getKey();
+            List<TechnicalMapping> rules = techMap.getSourceFields(targetTable, source.getValue().x, source.getValue().y);
+            TransformQuery query = createTransformQuery(sourceTable, rules, targetTable, new HashMap<>());
+            addSourceCollectionColumn(query, source.getValue().x, source.getValue().y);
+            transforms.add(getQuerySQL(query
+                    , query.getSelectSQL(columnDefinitions) + profile.getPartitionSelectSQL(query)
+                    , sourceTable, getLookupRelation(getFilteredRelation(getSourceRelation(sourceTable, rules)
+                            , sourceTable, targetTable, rules), sourceTable, targetTable, rules)
+                    , targetTable, wheres, ""));
+        }
+
+        result.add(String.format("%s SELECT * FROM (\n%s\n) unioned%s", statement
+                , String.join("\nUNION ALL\n", transforms), profile.getDistributeAndSortSQL()));
+
+        return result;
+    }
+
+    private static void addSourceCollectionColumn(TransformQuery query, String sourceDatabase, String sourceCollection){
+        query.columns.put(SOURCE_COLLECTION_COLUMN, String.format("'%s.%s'", sourceDatabase, sourceCollection));
+    }
+
+    /**
+     * Generates view or materialized view of the target table. View is replaced by every run. Materialized view
+     * is created once and kept so that HIVE can rebuild it incrementally from changes of transactional source
+     * tables, otherwise it is rebuilt fully. Materialized view has to be dropped when the technical mapping
+     * changes its query. Materialized views need HIVE 3.
+     */
+    private List<String> generateViewSql(String sourceTableName, List<TechnicalMapping> targetRules
+            , String targetTable, HashMap<String,String> wheres, StorageProfile profile
+            , MaterializationEnum tableMaterialization){
+        List<String> result = new ArrayList<>();
+        String viewName = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable);
+
+        if(tableMaterialization == MaterializationEnum.VIEW) {
+            result.add(String.format("DROP VIEW IF EXISTS %s", viewName));
+            result.add(getTransformSQL(sourceTableName, targetRules, targetTable, "", wheres, profile, false
+                    , tableMaterialization));
+        }else {
+            result.add("SET hive.materializedview.rewriting=true");
+            result.add("SET hive.materializedview.rebuild.incremental=true");
+            result.add(getTransformSQL(sourceTableName, targetRules, targetTable, "", wheres, profile, false
+                    , tableMaterialization));
+            result.add(String.format("ALTER MATERIALIZED VIEW %s REBUILD", viewName));
+        }
+        return result;
+    }
+
+    /**
+     * Generates watermark table and transactional target table, both kept between runs, and drops stage table
+     * holding changes of the run.
+     */
+    private List<String> generateCreateTransactionalTableSql(TechnicalMappingReader techMap, String targetTable,
+                                                             StorageProfile profile){
+        List<String> result = new ArrayList<>();
+        String columnsSQL = "";
+
+        for(Map.Entry<String,String> definition: getColumnDefinitions(techMap, targetTable, profile).entrySet()){
+            if(columnsSQL.length()>0)
+                columnsSQL += ",";
+            columnsSQL += String.format("%s %s\n", definition.getKey(), definition.getValue());
+        }
+        String partitionColumnsSQL = profile.getPartitionColumnsSQL();
+
+        result.add("SET hive.support.concurrency=true");
+        result.add("SET hive.txn.manager=org.apache.hadoop.hive.ql.lockmgr.DbTxnManager");
+        result.add("SET hive.enforce.bucketing=true");
+        result.add("SET hive.exec.dynamic.partition.mode=nonstrict");
+        result.add(String.format("CREATE TABLE IF NOT EXISTS %s (target_table STRING, %s TIMESTAMP) STORED AS ORC"
+                , WATERMARK_TABLE, LAST_MODIFIED_COLUMN));
+        result.add(String.format("CREATE TABLE IF NOT EXISTS %s (%s)%s%s"
+                , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), columnsSQL
+                , partitionColumnsSQL.isEmpty() ? "" : String.format(" PARTITIONED BY (%s)", partitionColumnsSQL)
+                , profile.getTransactionalStorageSQL()));
+        result.add(String.format("DROP TABLE IF EXISTS %s", getStageTableName(targetTable)));
+
+        return result;
+    }
+
+    /**
+     * Merges changes staged by the run into target table: removed documents are deleted, changed ones updated and
+     * new ones inserted. Watermark moves to the latest change.
+     */
+    private List<String> generateMergeSql(TechnicalMappingReader techMap, String targetTable, StorageProfile profile){
+        List<String> result = new ArrayList<>();
+        String target = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable);
+        String stageTable = getStageTableName(targetTable);
+
+        List<String> columns = new ArrayList<>(getColumnDefinitions(techMap, targetTable, profile).keySet());
+        columns.addAll(profile.partitionColumns.keySet());
+
+        String on = "";
+        for(String key: profile.keyColumns){
+            if(on.length() > 0)
+                on += " AND ";
+            on += String.format("target.%s = changes.%s", key, key);
+        }
+        String update = "";
+        String values = "";
+        for(String column: columns){
+            if(!profile.getNotUpdatableColumns().contains(column)) {
+                if (update.length() > 0)
+                    update += ", ";
+                update += String.format("%s = changes.%s", column, column);
+            }
+            if(values.length() > 0)
+                values += ", ";
+            values += String.format("changes.%s", column);
+        }
+
+        result.add(String.format("MERGE INTO %s AS target USING %s AS changes ON %s" +
+                        "\n WHEN MATCHED AND changes.%s IS NOT NULL THEN DELETE" +
+                        "%s" +
+                        "\n WHEN NOT MATCHED AND changes.%s IS NULL THEN INSERT VALUES (%s)"
+                , target, stageTable, on, REMOVED_COLUMN
+                , update.isEmpty() ? "" : String.format("\n WHEN MATCHED THEN UPDATE SET %s", update)
+                , REMOVED_COLUMN, values));
+        result.add(String.format("INSERT INTO TABLE %s SELECT '%s', %s FROM " +
+                        "(SELECT MAX(%s) AS %s FROM %s) changes WHERE %s IS NOT NULL"
+                , WATERMARK_TABLE, target, LAST_MODIFIED_COLUMN
+                , LAST_MODIFIED_COLUMN, LAST_MODIFIED_COLUMN, stageTable, LAST_MODIFIED_COLUMN));
+        if(compactIncremental)
+            result.add(String.format("ALTER TABLE %s COMPACT 'major'", target));
+
+        return result;
+    }
+
+    /**
+     * Generates checks of documents sampled from the source table which stop the script by ASSERT_TRUE before
+     * the transform reads the whole table. Documents have to be found, not_nullable paths have to have a value
+     * and values have to convert into their target types in at least one sampled document, unique paths have to
+     * have more than one value. Exploded and looked up paths aren't checked.
+     * @param sampleRows rows sampled from each split of the source table
+     * @return statement asserting all checks in one scan of the sample
+     */
+    public List<String> generatePrecheckSql(String sourceTable, List<TechnicalMapping> rules, int sampleRows){
+        if(flatten)
+            throw new IllegalStateException("flattened raw documents have no mapped columns to check");
+        List<String> aggregates = new ArrayList<>();
+        List<String> assertions = new ArrayList<>();
+        aggregates.add("COUNT(*) AS documents");
+        assertions.add("ASSERT_TRUE(documents > 0)");
+        // rules of target tables sharing the source table check the same path once
+        Set<String> checked = new HashSet<>();
+        for(TechnicalMapping rule: rules){
+            if(rule.isLookup() || isExploded(rule.jsonPath))
+                continue;
+            String column = JsonPathUtils.addBackTicks(rule.jsonPath);
+            String removedColumn = JsonPathUtils.addBackTicks(createRemovedColumn(rule.jsonPath));
+            String converted = convertSourceToTargetHIVEType(rule, column);
+            Set<DataCheckEnum> dataChecks = rule.getDataChecks();
+            if(!checked.add(converted + dataChecks))
+                continue;
+            String values = "values_" + aggregates.size();
+            aggregates.add(String.format("COUNT(%s) AS %s", coalesceRemovedColumn(column, removedColumn), values));
+            if(dataChecks.contains(DataCheckEnum.NOT_NULLABLE))
+                assertions.add(String.format("ASSERT_TRUE(%s > 0)", values));
+            if(!converted.equals(column)) {
+                String convertedValues = "converted_" + aggregates.size();
+                aggregates.add(String.format("COUNT(%s) AS %s", coalesceRemovedColumn(converted
+                        , convertSourceToTargetHIVEType(rule, removedColumn)), convertedValues));
+                assertions.add(String.format("ASSERT_TRUE(%s = 0 OR %s > 0)", values, convertedValues));
+            }
+            if(dataChecks.contains(DataCheckEnum.UNIQUE_DATA_CHECK)) {
+                String distinctValues = "distinct_" + aggregates.size();
+                aggregates.add(String.format("COUNT(DISTINCT %s) AS %s"
+                        , coalesceRemovedColumn(column, removedColumn), distinctValues));
+                assertions.add(String.format("ASSERT_TRUE(%s <= 1 OR %s > 1)", values, distinctValues));
+            }
+        }
+        String filter = snapshotFrom == null ? "" : String.format(" WHERE %s BETWEEN '%s' AND '%s'"
+                , SourceTableGenerator.SNAPSHOT_DATE_COLUMN, snapshotFrom, snapshotTo);
+
+        List<String> result = new ArrayList<>();
+        result.add(String.format("SELECT %s FROM (SELECT %s FROM %s TABLESAMPLE(%d ROWS)%s) sampled"
+                , String.join(", ", assertions), String.join(", \n", aggregates), sourceTable, sampleRows, filter));
+        return result;
+    }
+
+    private static String getStageTableName(String targetTable){
+        return TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(String.format("stg_%s", targetTable));
+    }
+
+    /**
+     * Generates populate statements for all target tables sourced from one collection.
+     * Target tables with the same lateral views share FROM clause of a single multi-insert statement so source
+     * table is read once per group instead of once per target table. Target tables have to be created upfront.
+     * @param techMap
+     * @param sourceDatabase
+     * @param sourceCollection
+     * @param sourceTableName source table holding union of fields of all target tables of the collection
+     * @param wheres
+     * @return
+     */
+    public List<String> generateSqlForCollection(TechnicalMappingReader techMap,
+                                                 String sourceDatabase,
+                                                 String sourceCollection,
+                                                 String sourceTableName,
+                                                 HashMap<String,String> wheres) {
+        List<String> result = new ArrayList<>();
+        String sourceRelation = getSourceRelation(sourceTableName, techMap.getSourceFields(sourceDatabase, sourceCollection));
+        // keeps pairs of <relation and lateral views, inserts> as tables with the same ones can share FROM clause
+        HashMap<String,String> inserts = new LinkedHashMap<>();
+        // keeps pairs of <relation and lateral views, projections> of the inner query shared by inserts
+        HashMap<String,HashMap<String,String>> projections = new LinkedHashMap<>();
+        HashMap<String,String> projectionAliases = new HashMap<>();
+        // keeps pairs of <target table, query> and <target table, relation read by the query> of populated tables
+        HashMap<String,TransformQuery> queries = new LinkedHashMap<>();
+        HashMap<String,String> relations = new HashMap<>();
+
+        for(String targetTable: techMap.getTargetTables(sourceDatabase, sourceCollection)) {
+            List<TechnicalMapping> targetRules = techMap.getSourceFields(targetTable, sourceDatabase, sourceCollection);
+            MaterializationEnum tableMaterialization = getMaterialization(techMap, targetTable);
+            if(tableMaterialization != MaterializationEnum.TABLE) {
+                // view reads the source table on its own rather than being populated by the multi-insert
+                result.addAll(generateViewSql(sourceTableName, targetRules, targetTable, wheres
+                        , StorageProfile.create(techMap.getTargetColumns(targetTable)), tableMaterialization));
+                continue;
+            }
+            TransformQuery query = createTransformQuery(sourceTableName, targetRules, targetTable, projectionAliases);
+            // snapshot date is aliased next to the columns of the query as aliases are shared by all queries
+            if(snapshotFrom != null)
+                project(query, projectionAliases, SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+            queries.put(targetTable, query);
+            // documents filtered before lateral views or joined with looked up documents are read by a relation
+            // of their own
+            relations.put(targetTable, getLookupRelation(getFilteredRelation(sourceRelation, sourceTableName
+                    , targetTable, targetRules), sourceTableName, targetTable, targetRules));
+        }
+
+        if(shareExplodes)
+            result.addAll(generateSharedExplodesSql(techMap, sourceDatabase, sourceCollection, sourceTableName
+                    , queries, relations, wheres));
+
+        for(Map.Entry<String,TransformQuery> targetQuery: queries.entrySet()) {
+            String targetTable = targetQuery.getKey();
+            TransformQuery query = targetQuery.getValue();
+            StorageProfile profile = StorageProfile.create(techMap.getTargetColumns(targetTable));
+            HashMap<String,String> columnDefinitions = getColumnDefinitions(techMap, targetTable, profile);
+
+            // target table populated from more than one collection must not be overwritten by any of them
+            String insertMode = "OVERWRITE";
+            if(!isSingleSource(techMap, targetTable)) {
+                insertMode = "INTO";
+                addSourceCollectionColumn(query, sourceDatabase, sourceCollection);
+            }
+            List<String> partitions = new ArrayList<>();
+            String selectSQL = query.getSelectSQL(columnDefinitions);
+            if(snapshotFrom != null) {
+                // dynamic partition, only partitions of the snapshot range are written
+                partitions.add(SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+                selectSQL += String.format(", %s as %s"
+                        , project(query, projectionAliases, SourceTableGenerator.SNAPSHOT_DATE_COLUMN)
+                        , SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+            }
+            partitions.addAll(profile.partitionColumns.keySet());
+            selectSQL += profile.getPartitionSelectSQL(query);
+            String insert = String.format("INSERT %s TABLE %s%s SELECT \n %s"
+                    , insertMode
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable)
+                    , getPartitionSQL(partitions)
+                    , selectSQL);
+            String from = String.format("%s\n %s", relations.get(targetTable), query.getLateralViewsSQL());
+            String where = query.getWhereSQL(wheres.get(targetTable));
+            if(query.isProjected()) {
+                // where refers to source columns so it filters inner query
+                if(!where.isEmpty())
+                    from += String.format("\n %s", where);
+                projections.computeIfAbsent(from, k -> new LinkedHashMap<>()).putAll(query.projections);
+            }else if(!where.isEmpty())
+                insert += String.format("\n %s", where);
+            insert += query.getGroupBySQL() + profile.getDistributeAndSortSQL();
+
+            inserts.merge(from, insert, (insert1, insert2) -> insert1 + "\n" + insert2);
+        }
+
+        for(Map.Entry<String,String> entry: inserts.entrySet()){
+            if(projections.containsKey(entry.getKey()))
+                result.add(String.format("FROM (SELECT %s FROM %s) projected\n%s"
+                        , TransformQuery.getProjectionSQL(projections.get(entry.getKey()))
+                        , entry.getKey(), entry.getValue()));
+            else
+                result.add(String.format("FROM %s\n%s", entry.getKey(), entry.getValue()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Materializes explodes which target tables of the collection lead their lateral views with into temporary
+     * tables, so an array exploded for many tables is exploded once. Tables of the same relation leading with
+     * the same explode but not sharing all lateral views, otherwise they share multi-insert already, read their
+     * common explodes from the temporary table instead of the relation. It holds top level fields of the tables
+     * and outputs of the explodes.
+     * Tables with where clause aren't changed as it may refer to any source column.
+     * @param queries pairs of <target table, query>, common explodes are removed from lateral views of the queries
+     * @param relations pairs of <target table, relation read by the query>, replaced with temporary table
+     * @return statements creating temporary tables
+     */
+    private List<String> generateSharedExplodesSql(TechnicalMappingReader techMap,
+                                                   String sourceDatabase,
+                                                   String sourceCollection,
+                                                   String sourceTableName,
+                                                   HashMap<String,TransformQuery> queries,
+                                                   HashMap<String,String> relations,
+                                                   HashMap<String,String> wheres){
+        List<String> result = new ArrayList<>();
+        // keeps pairs of <relation and first explode, target tables>
+        HashMap<String,List<String>> groups = new LinkedHashMap<>();
+        for(Map.Entry<String,TransformQuery> targetQuery: queries.entrySet()){
+            List<String> explodes = targetQuery.getValue().getLeadingExplodes();
+            if(explodes.isEmpty() || wheres.containsKey(targetQuery.getKey()))
+                continue;
+            groups.computeIfAbsent(relations.get(targetQuery.getKey()) + "\n " + explodes.get(0)
+                    , k -> new ArrayList<>()).add(targetQuery.getKey());
+        }
+
+        for(List<String> targetTables: groups.values()){
+            Set<String> fromClauses = new HashSet<>();
+            List<String> commonExplodes = null;
+            for(String targetTable: targetTables){
+                TransformQuery query = queries.get(targetTable);
+                fromClauses.add(query.getLateralViewsSQL());
+                List<String> explodes = query.getLeadingExplodes();
+                if(commonExplodes == null)
+                    commonExplodes = explodes;
+                int common = 0;
+                while(common < commonExplodes.size() && common < explodes.size()
+                        && commonExplodes.get(common).equals(explodes.get(common)))
+                    common++;
+                commonExplodes = commonExplodes.subList(0, common);
+            }
+            if(fromClauses.size() < 2)
+                continue;
+
+            for(String targetTable: targetTables)
+                queries.get(targetTable).lateralViews.subList(0, commonExplodes.size()).clear();
+
+            // arrays read only by the common explodes aren't repeated by every exploded row
+            Set<String> fields = new LinkedHashSet<>();
+            for(String targetTable: targetTables)
+                fields.addAll(getTopLevelFields(techMap.getSourceFields(targetTable, sourceDatabase, sourceCollection)));
+            if(removedEnabled)
+                fields.add("_removed");
+            List<String> columns = new ArrayList<>();
+            for(String field: fields){
+                if(targetTables.stream().anyMatch(targetTable -> queries.get(targetTable).refersTo(field)))
+                    columns.add(String.format("`%s`", field));
+            }
+            if(snapshotFrom != null)
+                columns.add(SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+            for(String explode: commonExplodes)
+                columns.addAll(queries.get(targetTables.get(0)).explodeOutputs.get(explode));
+
+            String explodedTable = TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(
+                    String.format("tmp_exploded_%s_%d", sourceTableName, result.size() / 2));
+            result.add(String.format("DROP TABLE IF EXISTS %s", explodedTable));
+            result.add(String.format("CREATE TEMPORARY TABLE %s STORED AS ORC AS SELECT %s FROM %s\n %s"
+                    , explodedTable, String.join(", ", columns), relations.get(targetTables.get(0))
+                    , String.join(" ", commonExplodes)));
+
+            for(String targetTable: targetTables)
+                relations.put(targetTable, explodedTable);
+        }
+        return result;
+    }
+
+    /**
+     * Generates statements dropping and creating empty target table. Used when the table is populated with
+     * INSERT rather than created with CREATE TABLE AS SELECT.
+     * Target table partitioned by snapshot date is created once and kept, snapshots are overwritten by inserts.
+     * Storage profile of the table adds partitioning, bucketing and table properties.
+     * @param techMap
+     * @param targetTable
+     * @param storeTableAs
+     * @return
+     */
+    public List<String> generateCreateTableSql(TechnicalMappingReader techMap, String targetTable, String storeTableAs){
+        List<String> result = new ArrayList<>();
+        if(getMaterialization(techMap, targetTable) != MaterializationEnum.TABLE)
+            return result;
+        String columnsSQL = "";
+        StorageProfile profile = StorageProfile.create(techMap.getTargetColumns(targetTable));
+
+        for(Map.Entry<String,String> definition: getColumnDefinitions(techMap, targetTable, profile).entrySet()){
+            if(columnsSQL.length()>0)
+                columnsSQL += ",";
+            columnsSQL += String.format("%s %s\n", definition.getKey(), definition.getValue());
+        }
+
+        String partitionColumnsSQL = profile.getPartitionColumnsSQL();
+        if(snapshotFrom != null)
+            partitionColumnsSQL = String.format("%s STRING", SourceTableGenerator.SNAPSHOT_DATE_COLUMN)
+                    + (partitionColumnsSQL.isEmpty() ? "" : ", " + partitionColumnsSQL);
+        String storageSQL = String.format("%s%s %s%s"
+                , partitionColumnsSQL.isEmpty() ? "" : String.format(" PARTITIONED BY (%s)", partitionColumnsSQL)
+                , profile.getClusteredBySQL()
+                , profile.getStoredAs(storeTableAs)
+                , profile.getTablePropertiesSQL());
+
+        if(snapshotFrom != null) {
+            result.add(String.format("CREATE TABLE IF NOT EXISTS %s (%s)%s"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), columnsSQL, storageSQL));
+        }else {
+            result.add(String.format("DROP TABLE IF EXISTS %s", targetTable));
+            result.add(String.format("CREATE TABLE %s (%s)%s"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), columnsSQL, storageSQL));
+        }
+        result.addAll(profile.getSettings());
+
+        return result;
+    }
+
+    /**
+     * @return pairs of <column, HIVE type> of the target table as it is created, without partition columns
+     */
+    public static HashMap<String,String> getColumnDefinitions(TechnicalMappingReader techMap, String targetTable){
+        return getColumnDefinitions(techMap, targetTable, StorageProfile.create(techMap.getTargetColumns(targetTable)));
+    }
+
+    /**
+     * @return column definitions of the target table followed by source_collection when it is populated from
+     * more than one collection
+     */
+    private static HashMap<String,String> getColumnDefinitions(TechnicalMappingReader techMap, String targetTable
+            , StorageProfile profile){
+        HashMap<String,String> columnDefinitions = getColumnDefinitions(techMap.getTargetColumns(targetTable), profile);
+        if(!isSingleSource(techMap, targetTable))
+            columnDefinitions.put(SOURCE_COLLECTION_COLUMN, "STRING");
+        return columnDefinitions;
+    }
+
+    /**
+     * @return pairs of <target field name, HIVE type> in technical mapping order, without partition columns.
+     * Fields of arrays of nested table are replaced with ARRAY<STRUCT> column of each array in place of its
+     * first field.
+     */
+    private static HashMap<String,String> getColumnDefinitions(List<TechnicalMapping> rules, StorageProfile profile){
+        HashMap<String,String> columnDefinitions = new LinkedHashMap<>();
+        for(TechnicalMapping rule: TechnicalMappingReader.groupByTarget(rules).keySet()){
+            if(!profile.partitionColumns.containsKey(rule.targetFieldName))
+                columnDefinitions.putIfAbsent(rule.targetFieldName, rule.getTargetType());
+        }
+        if(!profile.nested)
+            return columnDefinitions;
+
+        HashMap<String,List<String>> nestedColumns = getNestedColumns(rules);
+        HashMap<String,String> nestedDefinitions = new LinkedHashMap<>();
+        for(Map.Entry<String,String> definition: columnDefinitions.entrySet()){
+            String nestedColumn = getNestedColumn(nestedColumns, definition.getKey());
+            if(nestedColumn == null) {
+                nestedDefinitions.put(definition.getKey(), definition.getValue());
+                continue;
+            }
+            if(nestedDefinitions.containsKey(nestedColumn))
+                continue;
+            if(isElementColumn(rules, nestedColumns.get(nestedColumn))) {
+                nestedDefinitions.put(nestedColumn, String.format("ARRAY<%s>", definition.getValue()));
+                continue;
+            }
+            String fields = "";
+            for(String field: nestedColumns.get(nestedColumn)){
+                if(fields.length() > 0)
+                    fields += ",";
+                fields += String.format("%s:%s", field, columnDefinitions.get(field));
+            }
+            nestedDefinitions.put(nestedColumn, String.format("ARRAY<STRUCT<%s>>", fields));
+        }
+        return nestedDefinitions;
+    }
+
+    /**
+     * Fields of one array are nested into a column named after the array. Only arrays of structs or primitives
+     * are nested, fields of arrays of arrays or of maps would need more than one level of collecting.
+     * @return pairs of <nested column, target fields of the array> in technical mapping order
+     */
+    private static HashMap<String,List<String>> getNestedColumns(List<TechnicalMapping> rules){
+        HashMap<String,List<String>> nestedColumns = new LinkedHashMap<>();
+        for(TechnicalMapping rule: TechnicalMappingReader.groupByTarget(rules).keySet()){
+            if(!isExploded(rule.jsonPath))
+                continue;
+            ExplodeInfo explodeInfo = ExplodeInfo.createExplodeInfo(rule);
+            if(explodeInfo.isMap || explodeInfo.explodeAliases.size() > 1)
+                throw new IllegalStateException(String.format("%s can't nest %s, only fields of arrays of structs " +
+                        "or primitives are nested", rule.targetTableName, rule.jsonPath));
+            String alias = explodeInfo.explodeAliases.keySet().iterator().next();
+            nestedColumns.computeIfAbsent(alias.substring(EXPLODED_ALIAS_PREFIX.length()), k -> new ArrayList<>())
+                    .add(rule.targetFieldName);
+        }
+        return nestedColumns;
+    }
+
+    /**
+     * @param fields target fields of nested column
+     * @return true when the only field of the nested column is the element itself, e.g. array of primitives,
+     * so the column is array of its values rather than of structs
+     */
+    private static boolean isElementColumn(List<TechnicalMapping> rules, List<String> fields){
+        return fields.size() == 1 && rules.stream()
+                .anyMatch(rule -> rule.targetFieldName.equals(fields.get(0)) && rule.jsonPath.endsWith("[*]"));
+    }
+
+    /**
+     * @return nested column holding the target field, null when the field isn't nested
+     */
+    private static String getNestedColumn(HashMap<String,List<String>> nestedColumns, String targetField){
+        for(Map.Entry<String,List<String>> nestedColumn: nestedColumns.entrySet()){
+            if(nestedColumn.getValue().contains(targetField))
+                return nestedColumn.getKey();
+        }
+        return null;
+    }
+
+    /**
+     * @return PARTITION clause of dynamic partition insert
+     */
+    private static String getPartitionSQL(List<String> partitions){
+        if(partitions.isEmpty())
+            return "";
+        return String.format(" PARTITION (%s)", String.join(", ", partitions));
+    }
+
+    /**
+     * Target table populated from more than one collection is always materialized as table
+     */
+    private MaterializationEnum getMaterialization(TechnicalMappingReader techMap, String targetTable){
+        if(!isSingleSource(techMap, targetTable))
+            return MaterializationEnum.TABLE;
+        return StorageProfile.create(techMap.getTargetColumns(targetTable)).getMaterialization(materialization);
+    }
+
+    private static boolean isSingleSource(TechnicalMappingReader techMap, String targetTable){
+        int sources = 0;
+        for(String sourceDatabase: techMap.getSourceDatabases(targetTable)){
+            sources += techMap.getSourceCollection(targetTable, sourceDatabase).size();
+        }
+        return sources <= 1;
+    }
+
     /**
      * Generates SQL from provided source table to provided target table
      * @param sourceTable
@@ -51,17 +760,399 @@ public class TransformTableGenerator {
      * @return
      */
     private String getTransformSQL(String sourceTable, List<TechnicalMapping> rules, String targetTable, String storeTableAs
-    ,HashMap<String,String> wheres) {
+    ,HashMap<String,String> wheres, StorageProfile profile, boolean mergeChanges
+    ,MaterializationEnum tableMaterialization) {
+        HashMap<String,String> projectionAliases = new HashMap<>();
+        TransformQuery query = createTransformQuery(sourceTable, rules, targetTable, projectionAliases);
+        String sourceRelation = getLookupRelation(getFilteredRelation(getSourceRelation(sourceTable, rules
+                , mergeChanges ? targetTable : null), sourceTable, targetTable, rules), sourceTable, targetTable, rules);
+
+        String statement;
+        String selectSQL;
+        String distributeAndSortSQL = profile.getDistributeAndSortSQL();
+        if(tableMaterialization != MaterializationEnum.TABLE) {
+            // view has no storage so it is neither partitioned nor sorted, snapshot date is its column
+            statement = String.format(tableMaterialization == MaterializationEnum.VIEW
+                    ? "CREATE VIEW %s AS" : "CREATE MATERIALIZED VIEW IF NOT EXISTS %s AS"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable));
+            selectSQL = query.getSelectSQL();
+            if(snapshotFrom != null)
+                selectSQL += String.format(", %s as %s"
+                        , project(query, projectionAliases, SourceTableGenerator.SNAPSHOT_DATE_COLUMN)
+                        , SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+            distributeAndSortSQL = "";
+        }else if(mergeChanges) {
+            // changes are staged in target table column order, MERGE fails when a key matches more than one change
+            // so only the latest change of each key is staged
+            List<String> columns = new ArrayList<>(getColumnDefinitions(rules, profile).keySet());
+            columns.addAll(profile.partitionColumns.keySet());
+            selectSQL = query.getSelectSQL(getColumnDefinitions(rules, profile)) + profile.getPartitionSelectSQL(query);
+            return String.format("CREATE TEMPORARY TABLE %s AS SELECT %s FROM (SELECT changes.*, ROW_NUMBER() OVER " +
+                            "(PARTITION BY %s ORDER BY %s DESC, %s DESC) AS change_rank FROM (%s) changes) ranked " +
+                            "WHERE change_rank = 1"
+                    , getStageTableName(targetTable), String.join(", ", columns)
+                    , String.join(", ", profile.keyColumns), LAST_MODIFIED_COLUMN, VERSION_COLUMN
+                    , getQuerySQL(query, selectSQL, sourceTable, sourceRelation, targetTable, wheres, ""));
+        }else if(profile.isEmpty()) {
+            statement = String.format("CREATE TABLE %s %s AS"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), profile.getStoredAs(storeTableAs));
+            selectSQL = query.getSelectSQL();
+        }else {
+            // columns of table created upfront are selected in its order followed by partition columns
+            statement = String.format("INSERT OVERWRITE TABLE %s%s"
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable)
+                    , getPartitionSQL(new ArrayList<>(profile.partitionColumns.keySet())));
+            selectSQL = query.getSelectSQL(getColumnDefinitions(rules, profile)) + profile.getPartitionSelectSQL(query);
+        }
+
+        return String.format("%s %s", statement
+                , getQuerySQL(query, selectSQL, sourceTable, sourceRelation, targetTable, wheres, distributeAndSortSQL));
+    }
+
+    /**
+     * @return SELECT of provided columns from source relation with lateral views and where of the target table
+     */
+    private static String getQuerySQL(TransformQuery query, String selectSQL, String sourceTable, String sourceRelation
+            , String targetTable, HashMap<String,String> wheres, String distributeAndSortSQL){
+        String where = query.getWhereSQL(wheres.get(targetTable));
+        if(query.isProjected()) {
+            if(!where.isEmpty())
+                where = String.format(" \n %s", where);
+            return String.format("SELECT \n %s FROM (SELECT %s FROM %s\n %s%s) projected%s%s"
+                    , selectSQL, query.getProjectionSQL(), sourceRelation, query.getLateralViewsSQL(), where
+                    , query.getGroupBySQL(), distributeAndSortSQL);
+        }
+
+        String allExplodedSQL = query.getLateralViewsSQL();
+        if(allExplodedSQL.length()==0 && sourceRelation.equals(sourceTable))
+            allExplodedSQL = sourceTable;
+
+        if(where.isEmpty())
+            return String.format("SELECT \n %s FROM %s\n %s%s%s"
+                , selectSQL, sourceRelation, allExplodedSQL, query.getGroupBySQL(), distributeAndSortSQL);
+        else
+
+            return String.format("SELECT \n %s FROM %s\n %s \n %s%s%s"
+                    , selectSQL, sourceRelation, allExplodedSQL, where
+                    , query.getGroupBySQL(), distributeAndSortSQL);
+    }
+
+    /**
+     * Returns source table or, when live or removed document is selected once per row, inner query over the source
+     * table aliased as the source table. The inner query keeps top level field names so columns and lateral views
+     * generated for the live document read whichever document was selected.
+     * @param sourceTable
+     * Source table partitioned by snapshot date is filtered by snapshot range in the inner query so partitions
+     * are pruned once for all inserts reading from the relation.
+     * @param rules rules of all target tables reading from the relation
+     * @return
+     */
+    private String getSourceRelation(String sourceTable, List<TechnicalMapping> rules){
+        return getSourceRelation(sourceTable, rules, null);
+    }
+
+    /**
+     * @param watermarkTargetTable when provided only documents changed since the last load of the table are read
+     */
+    private String getSourceRelation(String sourceTable, List<TechnicalMapping> rules, String watermarkTargetTable){
+        if(flatten) {
+            // raw document has no columns to filter, deduplicate or select removed document by
+            if(snapshotFrom != null || watermarkTargetTable != null || dedupKey != null
+                    || removedStrategy == RemovedStrategyEnum.SELECT_DOCUMENT)
+                throw new IllegalStateException("flattened documents can't be read by snapshot, incrementally, " +
+                        "deduplicated or with removed document selected");
+            return sourceTable;
+        }
+        List<String> filters = new ArrayList<>();
+        String join = "";
+        if(snapshotFrom != null)
+            filters.add(String.format("%s BETWEEN '%s' AND '%s'"
+                    , SourceTableGenerator.SNAPSHOT_DATE_COLUMN, snapshotFrom, snapshotTo));
+        if(watermarkTargetTable != null) {
+            join = String.format(" CROSS JOIN (SELECT COALESCE(MAX(%s), CAST('1970-01-01 00:00:00' AS TIMESTAMP)) AS watermark" +
+                            " FROM %s WHERE target_table = '%s') watermark"
+                    , LAST_MODIFIED_COLUMN, WATERMARK_TABLE
+                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(watermarkTargetTable));
+            String lastModified = getLastModifiedSQL(rules);
+            filters.add(String.format("(%s IS NULL OR %s > watermark.watermark)", lastModified, lastModified));
+        }
+        String filter = filters.isEmpty() ? "" : " WHERE " + String.join(" AND ", filters);
+
+        String relation = sourceTable;
+        if(dedupKey != null) {
+            // documents are filtered before and selected after deduplication
+            relation = getLatestVersionRelation(sourceTable, rules, join + filter);
+            join = "";
+            filter = "";
+        }
+
+        if(removedStrategy != RemovedStrategyEnum.SELECT_DOCUMENT) {
+            if(filters.isEmpty() || dedupKey != null)
+                return relation;
+            return String.format("(SELECT %s FROM %s%s%s) %s"
+                    , join.isEmpty() ? "*" : sourceTable + ".*", sourceTable, join, filter, sourceTable);
+        }
+
+        String columns = "";
+        for(String field: getTopLevelFields(rules)){
+            if(columns.length()>0)
+                columns += ", ";
+            columns += String.format("IF(`_removed` IS NULL, `%s`, `_removed`.`%s`) AS `%s`", field, field, field);
+        }
+
+        if(snapshotFrom != null)
+            columns += ", " + SourceTableGenerator.SNAPSHOT_DATE_COLUMN;
+
+        return String.format("(SELECT %s FROM %s%s%s) %s", columns, relation, join, filter, sourceTable);
+    }
+
+    /**
+     * Filters documents of the relation with filters of the target table on paths which aren't exploded, so
+     * documents are dropped before lateral views multiply them. Flattened raw documents have no such columns,
+     * all their filters are evaluated after flattening.
+     * @param sourceRelation source table or inner query aliased as the source table
+     * @return inner query over the relation aliased as the source table or the relation when nothing is filtered
+     */
+    private String getFilteredRelation(String sourceRelation, String sourceTable, String targetTable
+            , List<TechnicalMapping> rules){
+        List<String> predicates = new ArrayList<>();
+        for(TableFilter filter: getFilters(targetTable, rules)){
+            if(flatten || isExploded(filter.jsonPath))
+                continue;
+            String column = JsonPathUtils.addBackTicks(filter.jsonPath);
+            if(removedEnabled)
+                column = coalesceRemovedColumn(column, JsonPathUtils.addBackTicks(createRemovedColumn(filter.jsonPath)));
+            predicates.add(filter.getSQL(column));
+        }
+        if(predicates.isEmpty())
+            return sourceRelation;
+        return String.format("(SELECT * FROM %s WHERE %s) %s"
+                , sourceRelation, String.join(" AND ", predicates), sourceTable);
+    }
+
+    /**
+     * @return filters of the target table, their json paths have to be mapped by the rules
+     */
+    private List<TableFilter> getFilters(String targetTable, List<TechnicalMapping> rules){
+        List<TableFilter> tableFilters = filters.getOrDefault(targetTable, Collections.emptyList());
+        for(TableFilter filter: tableFilters){
+            if(rules.stream().noneMatch(rule -> rule.jsonPath.equals(filter.jsonPath)))
+                throw new IllegalStateException(String.format("%s filters %s which it does not map"
+                        , targetTable, filter.jsonPath));
+        }
+        return tableFilters;
+    }
+
+    private static boolean isExploded(String jsonPath){
+        return JsonPathUtils.findFirstExplodeOperator(jsonPath).exploitable;
+    }
+
+    /**
+     * Keeps only the latest version of each document, so a document exported more than once is exploded once.
+     * Latest version is the MAX of a struct led by the version which is a single aggregation per document
+     * without sorting its versions. Structs holding a MAP can't be compared, such documents are ranked
+     * with ROW_NUMBER instead.
+     * Each snapshot keeps its own latest version.
+     * @param joinAndFilter join and WHERE clause applied to the source table before deduplication
+     * @return inner query over the source table aliased as the source table
+     */
+    private String getLatestVersionRelation(String sourceTable, List<TechnicalMapping> rules, String joinAndFilter){
+        boolean keyMapped = false;
+        boolean hasMap = false;
+        for(TechnicalMapping rule: rules){
+            keyMapped |= rule.jsonPath.equals(dedupKey);
+            hasMap |= rule.sourceType == SOURCE_TYPE_MAP || JsonPathUtils.hasMapSegment(rule.jsonPath);
+        }
+        if(!keyMapped)
+            throw new IllegalStateException(dedupKey + " is not mapped");
+
+        Set<String> fields = getTopLevelFields(rules);
+        fields.add("_removed");
+        List<String> keys = new ArrayList<>();
+        keys.add(coalesceRemovedColumn(JsonPathUtils.addBackTicks(dedupKey)
+                , JsonPathUtils.addBackTicks(createRemovedColumn(dedupKey))));
+        String snapshotColumn = "";
+        if(snapshotFrom != null) {
+            keys.add(SourceTableGenerator.SNAPSHOT_DATE_COLUMN);
+            snapshotColumn = ", " + SourceTableGenerator.SNAPSHOT_DATE_COLUMN;
+        }
+        String version = String.format("CAST(%s AS BIGINT)", coalesceRemovedColumn(
+                JsonPathUtils.addBackTicks(VERSION_PATH), JsonPathUtils.addBackTicks(createRemovedColumn(VERSION_PATH))));
+
+        String columns = "";
+        String latestColumns = "";
+        String documentFields = "";
+        for(String field: fields){
+            if(columns.length()>0) {
+                columns += ", ";
+                latestColumns += ", ";
+                documentFields += ", ";
+            }
+            columns += String.format("`%s`", field);
+            latestColumns += String.format("`latest`.`document`.`%s` AS `%s`", field, field);
+            documentFields += String.format("'%s', `%s`", field, field);
+        }
+
+        if(hasMap)
+            return String.format("(SELECT %s%s FROM (SELECT %s%s, ROW_NUMBER() OVER (PARTITION BY %s ORDER BY %s DESC)" +
+                            " AS version_rank FROM %s%s) ranked WHERE version_rank = 1) %s"
+                    , columns, snapshotColumn, columns, snapshotColumn, String.join(", ", keys), version, sourceTable, joinAndFilter, sourceTable);
+
+        return String.format("(SELECT %s%s FROM (SELECT MAX(NAMED_STRUCT('version', %s, 'document', NAMED_STRUCT(%s)))" +
+                        " AS latest%s FROM %s%s GROUP BY %s) latest) %s"
+                , latestColumns, snapshotColumn, version, documentFields, snapshotColumn, sourceTable, joinAndFilter
+                , String.join(", ", keys), sourceTable);
+    }
+
+    /**
+     * @return top level fields of the rules which are source table columns, looked up fields are columns of
+     * other collections
+     */
+    private static Set<String> getTopLevelFields(List<TechnicalMapping> rules){
+        Set<String> fields = new LinkedHashSet<>();
+        for(TechnicalMapping rule: rules){
+            if(!rule.isLookup())
+                fields.add(JsonPathUtils.getTopLevelField(rule.jsonPath));
+        }
+        return fields;
+    }
+
+    /**
+     * Joins documents of the relation with the latest version of the documents they look up in other collections,
+     * one join per looked up collection and path. Looked up collections are small dimensions, so the joins are
+     * hinted as map-side joins and each adds a struct of its converted fields named as its alias.
+     * @param sourceRelation source table or inner query aliased as the source table
+     * @return inner query over the relation aliased as the source table or the relation when nothing is looked up
+     */
+    private String getLookupRelation(String sourceRelation, String sourceTable, String targetTable
+            , List<TechnicalMapping> rules){
+        HashMap<String,List<TechnicalMapping>> lookupJoins = getLookupJoins(rules);
+        if(lookupJoins.isEmpty())
+            return sourceRelation;
+
+        List<String> aliases = new ArrayList<>();
+        String columns = "";
+        String joins = "";
+        for(List<TechnicalMapping> lookups: lookupJoins.values()){
+            TechnicalMapping lookupRule = lookups.get(0);
+            Tuple<String,String> lookup = lookupRule.getLookup();
+            if(isExploded(lookup.x) || rules.stream().noneMatch(rule -> !rule.isLookup() && rule.jsonPath.equals(lookup.x)))
+                throw new IllegalStateException(String.format("%s looks up %s by %s which it does not map or explodes"
+                        , targetTable, lookupRule.jsonPath, lookup.x));
+
+            String fields = "";
+            for(TechnicalMapping rule: lookups){
+                if(isExploded(rule.jsonPath))
+                    throw new IllegalStateException(String.format("%s can't look up exploded %s"
+                            , targetTable, rule.jsonPath));
+                if(fields.length()>0)
+                    fields += ", ";
+                fields += String.format("'%s', %s", rule.targetFieldName
+                        , convertSourceToTargetHIVEType(rule, getLiveOrRemovedColumn(rule.jsonPath)));
+            }
+            String alias = getLookupAlias(lookupJoins, lookupRule);
+            String key = String.format("CAST(%s AS STRING)", getLiveOrRemovedColumn(lookup.y));
+            String version = String.format("CAST(%s AS BIGINT)", getLiveOrRemovedColumn(VERSION_PATH));
+            aliases.add(alias);
+            columns += String.format(", %s.latest.document AS %s", alias, alias);
+            joins += String.format("\n LEFT OUTER JOIN (SELECT %s AS lookup_key, MAX(NAMED_STRUCT('version', %s" +
+                            ", 'document', NAMED_STRUCT(%s))) AS latest FROM %s GROUP BY %s) %s" +
+                            " ON CAST(%s AS STRING) = %s.lookup_key"
+                    , key, version, fields
+                    , SourceTableGenerator.getLookupTableName(lookupRule.getSourceDatabase(), lookupRule.sourceCollection, targetTable)
+                    , key, alias, getLiveOrRemovedColumn(lookup.x), alias);
+        }
+        return String.format("(SELECT /*+ MAPJOIN(%s) */ %s.*%s FROM %s%s) %s"
+                , String.join(", ", aliases), sourceTable, columns, sourceRelation, joins, sourceTable);
+    }
+
+    /**
+     * @return lookup rules grouped by the join finding their documents, keyed by looked up collection, path and key
+     */
+    private static HashMap<String,List<TechnicalMapping>> getLookupJoins(List<TechnicalMapping> rules){
+        HashMap<String,List<TechnicalMapping>> lookupJoins = new LinkedHashMap<>();
+        for(TechnicalMapping rule: rules){
+            if(!rule.isLookup())
+                continue;
+            Tuple<String,String> lookup = rule.getLookup();
+            lookupJoins.computeIfAbsent(String.format("%s.%s:%s:%s", rule.getSourceDatabase(), rule.sourceCollection
+                    , lookup.x, lookup.y), join -> new ArrayList<>()).add(rule);
+        }
+        return lookupJoins;
+    }
+
+    /**
+     * @return alias of the join finding documents of the lookup rule
+     */
+    private static String getLookupAlias(HashMap<String,List<TechnicalMapping>> lookupJoins, TechnicalMapping lookup){
+        int index = 0;
+        for(List<TechnicalMapping> lookups: lookupJoins.values()){
+            if(lookups.contains(lookup))
+                break;
+            index++;
+        }
+        return String.format("lookup_%d", index);
+    }
+
+    /**
+     * @return column of live document or of removed document when the live one is missing
+     */
+    private String getLiveOrRemovedColumn(String jsonPath){
+        String column = JsonPathUtils.addBackTicks(jsonPath);
+        if(removedEnabled)
+            column = coalesceRemovedColumn(column, JsonPathUtils.addBackTicks(createRemovedColumn(jsonPath)));
+        return column;
+    }
+
+    /**
+     * @return last modified timestamp of live or removed document
+     */
+    private String getLastModifiedSQL(List<TechnicalMapping> rules){
+        for(TechnicalMapping rule: rules){
+            if(rule.targetFieldName.equals(LAST_MODIFIED_COLUMN))
+                return coalesceRemovedColumn(
+                        convertSourceToTargetHIVEType(rule, JsonPathUtils.addBackTicks(rule.jsonPath)),
+                        convertSourceToTargetHIVEType(rule, JsonPathUtils.addBackTicks(createRemovedColumn(rule.jsonPath))));
+        }
+        throw new IllegalStateException(LAST_MODIFIED_COLUMN + " is not mapped");
+    }
+
+    /**
+     * Generates columns and lateral views from provided source table to provided target table
+     * @param sourceTable
+     * @param rules
+     * @param targetTable
+     * @param projectionAliases pairs of <raw source expression, alias> shared by queries reading the same inner query
+     * @return
+     */
+    private TransformQuery createTransformQuery(String sourceTable, List<TechnicalMapping> rules, String targetTable
+            , HashMap<String,String> projectionAliases) {
         logger.debug(String.format("source table:%s, target table: %s, removed enabled: %s",sourceTable,targetTable,removedEnabled));
-        String selectSQL = "";
-        String allExplodedSQL = "";
+        StorageProfile profile = StorageProfile.create(rules);
+        if(flatten) {
+            if(profile.nested)
+                throw new IllegalStateException(targetTable + " is nested so it can't be flattened");
+            if(!getLookupJoins(rules).isEmpty())
+                throw new IllegalStateException(targetTable + " looks up other collections so it can't be flattened");
+            return createFlattenQuery(rules, targetTable);
+        }
+        TransformQuery query = new TransformQuery();
         // have unique explodeAliases
         HashMap<String,Tuple<String,Boolean>> mapExplodeAliases = new LinkedHashMap<>();
         // group rules together by target to coalesce and produce one target column
         HashMap<TechnicalMapping, List<TechnicalMapping>> columnGroups = TechnicalMappingReader.groupByTarget(rules);
 
+        HashMap<String,List<TechnicalMapping>> lookupJoins = getLookupJoins(rules);
+
         // iterate each target group and generate columns
         for(HashMap.Entry<TechnicalMapping,List<TechnicalMapping>> columnGroup: columnGroups.entrySet()) {
+            if(columnGroup.getKey().isLookup()) {
+                // looked up field is read from the struct its lookup join adds to the relation
+                TechnicalMapping lookup = columnGroup.getKey();
+                query.columns.put(lookup.targetFieldName, project(query, projectionAliases, String.format("`%s`.`%s`"
+                        , getLookupAlias(lookupJoins, lookup), lookup.targetFieldName)));
+                continue;
+            }
             String columns="";
             //remember target field name
             String targetFieldName = columnGroup.getKey().targetFieldName;
@@ -89,13 +1180,13 @@ public class TransformTableGenerator {
                     column = JsonPathUtils.addBackTicks(explodeInfo.column);
 
                     // convert types
-                    column = convertSourceToTargetHIVEType(rule, column);
+                    column = convertSourceToTargetHIVEType(rule, project(query, projectionAliases, column));
 
                     ExplodeInfo removeExplodeInfo = explodeInfo.getRemovedVersionOfExplodeAlias2();
                     // Support for removed
                     if (removedEnabled) {
                         String removedColumn = JsonPathUtils.addBackTicks(removeExplodeInfo.column);
-                        removedColumn = convertSourceToTargetHIVEType(rule, removedColumn);
+                        removedColumn = convertSourceToTargetHIVEType(rule, project(query, projectionAliases, removedColumn));
                         // wrap with coalesce
                         column = coalesceRemovedColumn(column, removedColumn);
                     }
@@ -140,6 +1231,7 @@ public class TransformTableGenerator {
                         getJsonObjectStatement = column;
                     }
 
+                    String superPathStatement = getJsonObjectStatement;
                     getJsonObjectStatement = String.format("GET_JSON_OBJECT(%s",getJsonObjectStatement);
 
                     column ="";
@@ -147,17 +1239,25 @@ public class TransformTableGenerator {
                         // gather all selects
                         if (column.length() > 0)
                             column += ", ";
+                        String subJSONPath = JsonPathUtils.subJSONPath(rule.jsonPath,JsonPathUtils.getSegments(superPathRule.jsonPath).size());
+                        // JSON_TUPLE extracts top level keys only
+                        if (jsonTuple && !subJSONPath.contains(".") && !subJSONPath.contains("[")) {
+                            column += query.getJsonTupleOutput(superPathStatement, subJSONPath);
+                            continue;
+                        }
                         // append hive json path "$. ..."
                         column += String.format("%s,\"$.%s\")"
                                 ,getJsonObjectStatement
-                                ,JsonPathUtils.subJSONPath(rule.jsonPath,JsonPathUtils.getSegments(superPathRule.jsonPath).size()));
+                                ,subJSONPath);
 
                     }
                     column+=",";
 
-                    column += JsonPathUtils.addBackTicks(createRemovedColumn(superPathRule.jsonPath));
+                    if(removedEnabled) {
+                        column += JsonPathUtils.addBackTicks(createRemovedColumn(superPathRule.jsonPath));
 
-                    column+=",";
+                        column += ",";
+                    }
 
                     column += JsonPathUtils.addBackTicks(superPathRule.jsonPath);
 
@@ -165,7 +1265,7 @@ public class TransformTableGenerator {
                     column = String.format("COALESCE(%s)", column);
 
                     // convert types
-                    column = convertSourceToTargetHIVEType(superPathRule, column);
+                    column = convertSourceToTargetHIVEType(superPathRule, project(query, projectionAliases, column));
                 }
 
                 // gather all selects
@@ -178,20 +1278,37 @@ public class TransformTableGenerator {
             if (groupsPerColumn > 1)
                 columns = String.format("COALESCE(%s)", columns);
             // gather all selects
-            if (selectSQL.length() > 0)
-                selectSQL += ", ";
-            // add alias
-            selectSQL += String.format("%s as %s", columns, targetFieldName);
+            query.columns.put(targetFieldName, columns);
+        }
+
+        // filters on exploded paths read exploded aliases of mapped paths
+        for(TableFilter filter: getFilters(targetTable, rules)){
+            if(!isExploded(filter.jsonPath))
+                continue;
+            ExplodeInfo explodeInfo = ExplodeInfo.createExplodeInfo(filter.jsonPath);
+            String column = JsonPathUtils.addBackTicks(explodeInfo.column);
+            if(removedEnabled)
+                column = coalesceRemovedColumn(column
+                        , JsonPathUtils.addBackTicks(explodeInfo.getRemovedVersionOfExplodeAlias2().column));
+            query.filters.add(filter.getSQL(column));
         }
 
+        if(profile.nested && !mapExplodeAliases.isEmpty())
+            nestArrays(query, rules, targetTable, profile, projectionAliases
+                    , getZippedPosition(mapExplodeAliases.keySet().iterator().next()));
+
         //lateral views
+        if(zipSiblingExplodes || profile.nested) {
+            // arrays of nested table are exploded together so elements of one aren't repeated for each of another
+            query.lateralViews.addAll(getZippedLateralViews(mapExplodeAliases, profile.nested));
+            query.addJsonTupleLateralViews();
+            return query;
+        }
         for (HashMap.Entry<String, Tuple<String, Boolean>> entry : mapExplodeAliases.entrySet()) {
             String alias = entry.getKey();
             String path = entry.getValue().x;
             Boolean isMap = entry.getValue().y;
 
-            if (allExplodedSQL.length() > 0)
-                allExplodedSQL += " ";
             String explodeSQL;
 
             if(isMap) {
@@ -205,19 +1322,520 @@ public class TransformTableGenerator {
                         , JsonPathUtils.addBackTicks(path)
                         , alias, alias);
             }
-            allExplodedSQL += explodeSQL;
+            query.lateralViews.add(explodeSQL);
+            query.explodeOutputs.put(explodeSQL, isMap
+                    ? Arrays.asList(alias + "_key", alias + "_value") : Collections.singletonList(alias));
         }
+        query.addJsonTupleLateralViews();
+        if(inline && sourceTableRules.containsKey(sourceTable))
+            inlineStructExplodes(query, mapExplodeAliases
+                    , SourceTableGenerator.createSchema(new ArrayList<>(sourceTableRules.get(sourceTable))));
 
-        if(allExplodedSQL.length()==0)
-            allExplodedSQL = sourceTable;
+        return query;
+    }
 
-        if(!wheres.containsKey(targetTable))
-            return String.format("CREATE TABLE %s %s AS SELECT \n %s FROM %s\n %s"
-                , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), storeTableAs, selectSQL, sourceTable, allExplodedSQL);
-        else
+    /**
+     * Collects exploded rows of each document back into ARRAY<STRUCT> column per array, so nested table keeps
+     * one row per document and readers explode only arrays they need. Struct fields are the converted columns
+     * of the array fields, array of primitives mapped as a whole gives array of its converted values. Rows are
+     * grouped by the key columns of the table, other columns are the same for all rows of a document and are
+     * taken by MAX. Arrays are exploded together by position, see {@link #getZippedLateralViews}, so each element
+     * is collected once. COLLECT_LIST doesn't keep the order of rows after the shuffle, so elements are collected
+     * with their position and sorted by it. Missing or empty array gives empty array, NULL elements and elements
+     * dropped by filters on exploded paths aren't collected.
+     * @param position position of elements in all arrays of the table
+     */
+    private void nestArrays(TransformQuery query, List<TechnicalMapping> rules, String targetTable
+            , StorageProfile profile, HashMap<String,String> projectionAliases, String position){
+        HashMap<String,List<String>> nestedColumns = getNestedColumns(rules);
+        if(nestedColumns.isEmpty())
+            return;
+        if(profile.keyColumns.isEmpty())
+            throw new IllegalStateException(targetTable + " is nested but has no key column identifying documents");
+
+        HashMap<String,String> columns = new LinkedHashMap<>();
+        for(Map.Entry<String,String> column: query.columns.entrySet()){
+            String nestedColumn = getNestedColumn(nestedColumns, column.getKey());
+            if(nestedColumn == null) {
+                if(profile.keyColumns.contains(column.getKey())) {
+                    columns.put(column.getKey(), column.getValue());
+                    query.groupBy.add(column.getValue());
+                }else {
+                    columns.put(column.getKey(), String.format("MAX(%s)", column.getValue()));
+                }
+                continue;
+            }
+            if(profile.keyColumns.contains(column.getKey()))
+                throw new IllegalStateException(String.format("%s can't nest key column %s", targetTable, column.getKey()));
+            if(columns.containsKey(nestedColumn))
+                continue;
+            String element;
+            if(isElementColumn(rules, nestedColumns.get(nestedColumn))) {
+                element = column.getValue();
+            }else {
+                String fields = "";
+                for (String field : nestedColumns.get(nestedColumn)) {
+                    if (fields.length() > 0)
+                        fields += ", ";
+                    fields += String.format("'%s', %s", field, query.columns.get(field));
+                }
+                element = String.format("NAMED_STRUCT(%s)", fields);
+            }
+            // element is present when live or removed array gave one
+            String alias = EXPLODED_ALIAS_PREFIX + nestedColumn;
+            String present = String.format("%s IS NOT NULL", project(query, projectionAliases, String.format("`%s`", alias)));
+            if(removedEnabled)
+                present = String.format("(%s OR %s IS NOT NULL)", present
+                        , project(query, projectionAliases, String.format("`%s%s`", REMOVED_ALIAS_PREFIX, alias)));
+            columns.put(nestedColumn, String.format("\nSORT_ARRAY(COLLECT_LIST(IF(%s, NAMED_STRUCT('pos', %s, 'element', %s)" +
+                    ", NULL))).element", present, project(query, projectionAliases, position), element));
+        }
+        query.columns = columns;
+        if(snapshotFrom != null)
+            query.groupBy.add(project(query, projectionAliases, SourceTableGenerator.SNAPSHOT_DATE_COLUMN));
+    }
+
+    /**
+     * Replaces EXPLODE of array of structs with INLINE which outputs a column per struct field, so the struct
+     * isn't carried through the lateral view for columns to pull its fields one by one. Fields of the struct are
+     * fields of the source table schema, so fields no target table maps aren't read. Missing or empty array is
+     * replaced with array of single struct of NULLs as INLINE of NULL fails where OUTER EXPLODE gives a row of
+     * NULLs. Arrays of structs read as a whole or holding types NULL can't be cast to are exploded as they were.
+     * @param mapExplodeAliases pairs of <alias, <path, isMap>> in declaration order
+     * @param schema schema of the source table
+     */
+    private static void inlineStructExplodes(TransformQuery query, HashMap<String, Tuple<String, Boolean>> mapExplodeAliases
+            , TechnicalMappingJSONSchema schema){
+        // array schema of exploded aliases
+        HashMap<String,TechnicalMappingJSONFieldSchema> explodedSchemas = new HashMap<>();
+        for(HashMap.Entry<String, Tuple<String, Boolean>> entry : mapExplodeAliases.entrySet()) {
+            String alias = entry.getKey();
+            if(entry.getValue().y)
+                continue;
+            // nested explode reads the element of exploded array, _removed has the schema of the document
+            List<String> segments = JsonPathUtils.getSegments(entry.getValue().x);
+            TechnicalMappingJSONFieldSchema arraySchema = explodedSchemas.getOrDefault(segments.get(0), schema);
+            int start = arraySchema != schema || segments.get(0).equals("_removed") ? 1 : 0;
+            for(String segment: segments.subList(start, segments.size())){
+                arraySchema = arraySchema == null ? null : getChildSchema(arraySchema, segment);
+            }
+            if(arraySchema == null || arraySchema.type != SOURCE_TYPE_ARRAY)
+                continue;
+            explodedSchemas.put(alias, arraySchema);
+
+            String nullStruct = isStructArray(arraySchema) ? getNullValueSQL(arraySchema) : null;
+            String lateralView = null;
+            for(String view: query.lateralViews){
+                if(view.startsWith("LATERAL VIEW OUTER EXPLODE(") && view.contains(String.format(") view_%s AS ", alias)))
+                    lateralView = view;
+            }
+            if(nullStruct == null || lateralView == null || isReadWhole(query, alias))
+                continue;
+
+            List<String> outputs = new ArrayList<>();
+            HashMap<String,String> fieldOutputs = new HashMap<>();
+            for(TechnicalMappingJSONFieldSchema field: arraySchema.children.values()){
+                String output = alias + "_" + TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(field.fieldName);
+                outputs.add(output);
+                fieldOutputs.put(field.fieldName.toLowerCase(), output);
+            }
+            String path = lateralView.substring("LATERAL VIEW OUTER EXPLODE(".length()
+                    , lateralView.lastIndexOf(String.format(") view_%s AS ", alias)));
+            String inlineView = String.format("LATERAL VIEW OUTER INLINE(IF(SIZE(%s) > 0, %s, ARRAY(%s))) view_%s AS %s \n"
+                    , path, path, nullStruct, alias, String.join(", ", outputs));
+            String explodeView = lateralView;
+            Pattern fieldReference = Pattern.compile(String.format("%s\\.`([^`]+)`", Pattern.quote("`" + alias + "`")));
+            query.rewrite(sql -> {
+                if(sql.equals(explodeView))
+                    return inlineView;
+                Matcher matcher = fieldReference.matcher(sql);
+                StringBuffer rewritten = new StringBuffer();
+                while(matcher.find())
+                    matcher.appendReplacement(rewritten, Matcher.quoteReplacement(
+                            "`" + fieldOutputs.get(matcher.group(1).toLowerCase()) + "`"));
+                matcher.appendTail(rewritten);
+                return rewritten.toString();
+            });
+            query.explodeOutputs.put(inlineView, outputs);
+        }
+    }
+
+    /**
+     * @return true when a column, lateral view, projection or filter reads the struct of exploded alias as a whole
+     * rather than its fields
+     */
+    private static boolean isReadWhole(TransformQuery query, String alias){
+        Pattern wholeReference = Pattern.compile(String.format("%s(?!\\.)", Pattern.quote("`" + alias + "`")));
+        List<String> expressions = new ArrayList<>(query.columns.values());
+        expressions.addAll(query.lateralViews);
+        expressions.addAll(query.projections.values());
+        expressions.addAll(query.filters);
+        for(String expression: expressions){
+            if(wholeReference.matcher(expression).find())
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return true when elements of the array are structs
+     */
+    private static boolean isStructArray(TechnicalMappingJSONFieldSchema arraySchema){
+        return arraySchema.arraySimpleType == null && !arraySchema.children.isEmpty();
+    }
+
+    private static TechnicalMappingJSONFieldSchema getChildSchema(TechnicalMappingJSONFieldSchema schema, String segment){
+        for(TechnicalMappingJSONFieldSchema child: schema.children.values()){
+            if(child.fieldName.equalsIgnoreCase(segment))
+                return child;
+        }
+        return null;
+    }
+
+    /**
+     * @return NAMED_STRUCT of NULLs of the struct field types, null when a field has type NULL can't be cast to
+     */
+    private static String getNullValueSQL(TechnicalMappingJSONFieldSchema structSchema){
+        String fields = "";
+        for(TechnicalMappingJSONFieldSchema field: structSchema.children.values()){
+            String value;
+            switch (field.type) {
+                case SOURCE_TYPE_ARRAY:
+                    if(field.arraySimpleType != null)
+                        value = String.format("ARRAY(CAST(NULL AS %s))", field.arraySimpleType.type.getHiveType());
+                    else {
+                        value = isStructArray(field) ? getNullValueSQL(field) : null;
+                        value = value == null ? null : String.format("ARRAY(%s)", value);
+                    }
+                    break;
+                case SOURCE_TYPE_MAP:
+                    value = String.format("MAP(CAST(NULL AS %s), CAST(NULL AS %s))"
+                            , field.mapKeyType.getHiveType(), field.mapValueType.getHiveType());
+                    break;
+                case SOURCE_TYPE_OBJECT:
+                    value = field.children.isEmpty() ? null : getNullValueSQL(field);
+                    break;
+                case SOURCE_TYPE_CUSTOM:
+                    value = null;
+                    break;
+                default:
+                    value = String.format("CAST(NULL AS %s)", field.type.getHiveType());
+            }
+            if(value == null)
+                return null;
+            if(fields.length() > 0)
+                fields += ", ";
+            fields += String.format("'%s', %s", field.fieldName, value);
+        }
+        return String.format("NAMED_STRUCT(%s)", fields);
+    }
+
+    /**
+     * Generates columns reading outputs of single jive_flatten call which parses raw document once and emits all
+     * rows of the target table. Every json path and its _removed version is an output, explodes of the paths
+     * give the same rows as LATERAL VIEW OUTER EXPLODEs do. Outputs are converted and coalesced as source columns
+     * are, keys of a super path are read as strings as GET_JSON_OBJECT reads them. Filters of the target table
+     * read outputs of their paths.
+     * @param rules
+     * @return
+     */
+    private TransformQuery createFlattenQuery(List<TechnicalMapping> rules, String targetTable) {
+        TransformQuery query = new TransformQuery();
+        // pairs of <flatten spec output, its alias>
+        HashMap<String,String> outputs = new LinkedHashMap<>();
+
+        for(HashMap.Entry<TechnicalMapping,List<TechnicalMapping>> columnGroup
+                : TechnicalMappingReader.groupByTarget(rules).entrySet()) {
+            String columns = "";
+            for(List<TechnicalMapping> sameJsonPathSourceGroup
+                    : JsonPathUtils.groupByJSONPath(columnGroup.getValue()).values()) {
+                //reverse the order as super jsonpath has to come last
+                sameJsonPathSourceGroup.sort((t1, t2) -> JsonPathUtils.compareJSONPathsDesc(t1.jsonPath,t2.jsonPath));
+                TechnicalMapping superPathRule = sameJsonPathSourceGroup.get(sameJsonPathSourceGroup.size()-1);
+
+                String column;
+                if(sameJsonPathSourceGroup.size() == 1) {
+                    column = convertSourceToTargetHIVEType(superPathRule
+                            , getFlattenOutput(outputs, superPathRule.jsonPath, getFlattenType(superPathRule)));
+                    if(removedEnabled)
+                        column = coalesceRemovedColumn(column, convertSourceToTargetHIVEType(superPathRule
+                                , getFlattenOutput(outputs, createRemovedColumn(superPathRule.jsonPath)
+                                        , getFlattenType(superPathRule))));
+                }else {
+                    column = "";
+                    for(TechnicalMapping rule: sameJsonPathSourceGroup) {
+                        String type = rule == superPathRule
+                                ? getFlattenType(rule) : SOURCE_TYPE_STRING.getHiveType();
+                        String output = getFlattenOutput(outputs, rule.jsonPath, type);
+                        if(removedEnabled)
+                            output = coalesceRemovedColumn(output
+                                    , getFlattenOutput(outputs, createRemovedColumn(rule.jsonPath), type));
+                        if(column.length() > 0)
+                            column += ", ";
+                        column += output;
+                    }
+                    column = convertSourceToTargetHIVEType(superPathRule, String.format("COALESCE(%s)", column));
+                }
+
+                if (columns.length() > 0)
+                    columns += ", ";
+                columns += "\n";
+                columns += column;
+            }
+            if (columnGroup.getValue().size() > 1)
+                columns = String.format("COALESCE(%s)", columns);
+            query.columns.put(columnGroup.getKey().targetFieldName, columns);
+        }
+
+        for(TableFilter filter: getFilters(targetTable, rules)){
+            String column = getFlattenOutput(outputs, filter.jsonPath, SOURCE_TYPE_STRING.getHiveType());
+            if(removedEnabled)
+                column = coalesceRemovedColumn(column, getFlattenOutput(outputs, createRemovedColumn(filter.jsonPath)
+                        , SOURCE_TYPE_STRING.getHiveType()));
+            query.filters.add(filter.getSQL(column));
+        }
+
+        // skipped malformed document gives no rows, OUTER would keep it as row of nulls
+        query.lateralViews.add(String.format("LATERAL VIEW %s%s view_flattened AS %s \n"
+                , skipMalformed ? "" : "OUTER ", JiveFunctionEnum.FLATTEN.call(String.format("`%s`, '%s'%s"
+                        , SourceTableGenerator.DOCUMENT_COLUMN, String.join(";", outputs.keySet())
+                        , skipMalformed ? ", true" : ""))
+                , String.join(", ", outputs.values())));
+        return query;
+    }
+
+    /**
+     * @return alias of jive_flatten output reading the json path as the type, added when it is new
+     */
+    private static String getFlattenOutput(HashMap<String,String> outputs, String jsonPath, String type){
+        return outputs.computeIfAbsent(String.format("%s %s", jsonPath, type)
+                , output -> String.format("flattened_%d", outputs.size()));
+    }
+
+    /**
+     * @return HIVE type jive_flatten reads source field as, objects, arrays and maps are read as their JSON text
+     */
+    private static String getFlattenType(TechnicalMapping rule){
+        switch (rule.sourceType) {
+            case SOURCE_TYPE_OBJECT:
+            case SOURCE_TYPE_ARRAY:
+            case SOURCE_TYPE_MAP:
+                return SOURCE_TYPE_STRING.getHiveType();
+            default:
+                String type = rule.getSourceType();
+                return type.contains("<") ? SOURCE_TYPE_STRING.getHiveType() : type;
+        }
+    }
+
+    /**
+     * @return alias of the source expression selected by inner query or the expression when it is not projected
+     */
+    private String project(TransformQuery query, HashMap<String,String> projectionAliases, String column){
+        if(!projectSourceExpressions)
+            return column;
+        return query.project(column, projectionAliases);
+    }
+
+    /**
+     * Sibling arrays are exploded together by position: one POSEXPLODE generates positions up to the size of the
+     * longest sibling and every sibling is indexed with it, so shorter siblings give NULLs instead of multiplying
+     * rows. Each sibling keeps its alias so columns and nested explodes are the same as with plain EXPLODE.
+     * Siblings are declared together, so a group is rendered once all aliases it refers to are declared.
+     * @param mapExplodeAliases pairs of <alias, <path, isMap>> in declaration order
+     * @param zipAll all arrays are siblings, they must not be nested in each other, and single array is exploded
+     * by position too
+     * @return LATERAL VIEW clauses
+     */
+    private static List<String> getZippedLateralViews(HashMap<String, Tuple<String, Boolean>> mapExplodeAliases
+            , boolean zipAll){
+        // group arrays by parent, maps are exploded on their own
+        HashMap<String,List<String>> groups = new LinkedHashMap<>();
+        mapExplodeAliases.forEach((alias, pathAndIsMap) -> {
+            String group = pathAndIsMap.y ? alias : zipAll ? "" : getSiblingGroup(pathAndIsMap.x);
+            groups.computeIfAbsent(group, k -> new ArrayList<>()).add(alias);
+        });
+
+        List<String> result = new ArrayList<>();
+        Set<String> declared = new HashSet<>();
+        List<List<String>> pending = new ArrayList<>(groups.values());
+        while(!pending.isEmpty()){
+            List<String> siblings = pending.get(0);
+            for(List<String> group: pending){
+                if(declared.containsAll(getReferencedAliases(group, mapExplodeAliases))) {
+                    siblings = group;
+                    break;
+                }
+            }
+            pending.remove(siblings);
+
+            String firstAlias = siblings.get(0);
+            Tuple<String, Boolean> first = mapExplodeAliases.get(firstAlias);
+            if(first.y) {
+                result.add(String.format("LATERAL VIEW OUTER EXPLODE(%s) view_%s AS %s_key, %s_value \n"
+                        , JsonPathUtils.addBackTicks(first.x)
+                        , firstAlias, firstAlias, firstAlias));
+            }else if(siblings.size() == 1 && !zipAll) {
+                result.add(String.format("LATERAL VIEW OUTER EXPLODE(%s) view_%s AS %s \n"
+                        , JsonPathUtils.addBackTicks(first.x)
+                        , firstAlias, firstAlias));
+            }else {
+                String zipAlias = getZipAlias(firstAlias);
+                String sizes = "";
+                for (String sibling : siblings) {
+                    if (sizes.length() > 0)
+                        sizes += ", ";
+                    sizes += String.format("SIZE(%s)", JsonPathUtils.addBackTicks(mapExplodeAliases.get(sibling).x));
+                }
+                // SIZE of missing array is -1, so at least one row is generated like with OUTER EXPLODE
+                result.add(String.format(
+                        "LATERAL VIEW OUTER POSEXPLODE(SPLIT(SPACE(GREATEST(%s) - 1), ' ')) view_%s AS %s_pos, %s_space \n"
+                        , sizes, zipAlias, zipAlias, zipAlias));
+                for (String sibling : siblings) {
+                    result.add(String.format("LATERAL VIEW OUTER EXPLODE(ARRAY(%s[%s_pos])) view_%s AS %s \n"
+                            , JsonPathUtils.addBackTicks(mapExplodeAliases.get(sibling).x)
+                            , zipAlias, sibling, sibling));
+                }
+            }
+            for (String sibling : siblings) {
+                declared.add(sibling);
+                if (mapExplodeAliases.get(sibling).y) {
+                    declared.add(sibling + "_key");
+                    declared.add(sibling + "_value");
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String getZipAlias(String firstAlias){
+        return String.format("zipped_%s", firstAlias);
+    }
+
+    /**
+     * @param firstAlias first alias of zipped siblings
+     * @return position column of the zipped siblings
+     */
+    private static String getZippedPosition(String firstAlias){
+        return String.format("`%s_pos`", getZipAlias(firstAlias));
+    }
+
+    /**
+     * @return aliases of other explodes the paths of the group start from
+     */
+    private static Set<String> getReferencedAliases(List<String> group,
+                                                    HashMap<String, Tuple<String, Boolean>> mapExplodeAliases){
+        Set<String> result = new HashSet<>();
+        for(String alias: group){
+            String path = mapExplodeAliases.get(alias).x;
+            String root = path.contains(".") ? path.substring(0, path.indexOf(".")) : path;
+            for(String other: mapExplodeAliases.keySet()) {
+                if (!other.equals(alias)
+                        && (root.equals(other) || root.equals(other + "_key") || root.equals(other + "_value")))
+                    result.add(root);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Arrays are siblings when they have the same parent. Removed version of an array is a sibling of its live
+     * version so both are exploded together too.
+     * @param path explode path of an array
+     * @return parent path with _removed stripped off
+     */
+    private static String getSiblingGroup(String path){
+        String parent = path.contains(".") ? path.substring(0, path.lastIndexOf(".")) : "";
+
+        if(parent.equals(REMOVED.substring(0, REMOVED.length() - 1)))
+            return "";
+        if(parent.startsWith(REMOVED))
+            return parent.substring(REMOVED.length());
+        if(parent.startsWith(REMOVED_ALIAS_PREFIX))
+            return parent.substring(REMOVED_ALIAS_PREFIX.length());
+        return parent;
+    }
+
+    public void setFlatten(boolean flatten) {
+        this.flatten = flatten;
+    }
+
+    public void setSkipMalformed(boolean skipMalformed) {
+        this.skipMalformed = skipMalformed;
+    }
+
+    /**
+     * @param shareExplodes when set, explodes target tables of a collection have in common are materialized once
+     */
+    public void setShareExplodes(boolean shareExplodes) {
+        this.shareExplodes = shareExplodes;
+    }
+
+    /**
+     * @param inline when set, arrays of structs are exploded by INLINE into a column per struct field
+     */
+    public void setInline(boolean inline) {
+        this.inline = inline;
+    }
+
+    /**
+     * @param sourceTableRules rules source tables were created from by source table name
+     */
+    public void setSourceTableRules(HashMap<String,List<TechnicalMapping>> sourceTableRules) {
+        this.sourceTableRules = sourceTableRules;
+    }
+
+    /**
+     * @param filters filters of target tables by target table name
+     */
+    public void setFilters(HashMap<String,List<TableFilter>> filters) {
+        this.filters = filters;
+    }
+
+    public void setMaterialization(MaterializationEnum materialization) {
+        this.materialization = materialization;
+    }
+
+    public void setDedupKey(String dedupKey) {
+        this.dedupKey = dedupKey;
+    }
+
+    /**
+     * @param snapshotFrom first snapshot date, inclusive
+     * @param snapshotTo last snapshot date, inclusive
+     */
+    public void setSnapshotRange(String snapshotFrom, String snapshotTo) {
+        this.snapshotFrom = snapshotFrom;
+        this.snapshotTo = snapshotTo;
+    }
+
+    public void setUdf(boolean udf) {
+        this.udf = udf;
+    }
+
+    public void setIncremental(boolean incremental) {
+        this.incremental = incremental;
+    }
+
+    public void setCompactIncremental(boolean compactIncremental) {
+        this.compactIncremental = compactIncremental;
+    }
+
+    public void setJsonTuple(boolean jsonTuple) {
+        this.jsonTuple = jsonTuple;
+    }
+
+    public void setProjectSourceExpressions(boolean projectSourceExpressions) {
+        this.projectSourceExpressions = projectSourceExpressions;
+    }
+
+    public void setZipSiblingExplodes(boolean zipSiblingExplodes) {
+        this.zipSiblingExplodes = zipSiblingExplodes;
+    }
 
-            return String.format("CREATE TABLE %s %s AS SELECT \n %s FROM %s\n %s \n %s"
-                    , TechnicalMappingJSONFieldSchema.normalizeHIVEObjectName(targetTable), storeTableAs, selectSQL, sourceTable, allExplodedSQL, wheres.get(targetTable));
+    public void setRemovedStrategy(RemovedStrategyEnum removedStrategy) {
+        this.removedStrategy = removedStrategy;
+        // document is selected before columns are generated so they don't have to look at _removed
+        this.removedEnabled = removedStrategy == RemovedStrategyEnum.COALESCE_COLUMNS;
     }
 
     private String coalesceRemovedColumn(String column, String removedColumn){
@@ -242,7 +1860,7 @@ public class TransformTableGenerator {
     * @param column
     * @return
     */
-    private static String convertSourceToTargetHIVEType(TechnicalMapping rule, String column) {
+    private String convertSourceToTargetHIVEType(TechnicalMapping rule, String column) {
 
         final String ConvertStringToTimestampTemplate="CASE " +
                 "WHEN SUBSTRING(%s, LENGTH(%s), 1) = 'Z' THEN " +
@@ -264,15 +1882,21 @@ public class TransformTableGenerator {
         }
 
         if(rule.targetType == SOURCE_TYPE_TIMESTAMP && rule.sourceType == SOURCE_TYPE_STRING){
+            if(udf)
+                return JiveFunctionEnum.TIMESTAMP.call(column);
             return String.format(ConvertStringToTimestampTemplate,column,column,column,column,column,column,column,column);
         }
 
         if(rule.sourceType == SOURCE_TYPE_STRING && rule.targetType == SOURCE_TYPE_BOOL){
+            if(udf)
+                return JiveFunctionEnum.BOOLEAN.call(column);
             return String.format(ConvertStringToBooleanTemplate, column, column);
         }
 
         if(rule.targetType == SOURCE_TYPE_DATE &&
             (rule.sourceType == SOURCE_TYPE_INT || rule.sourceType == SOURCE_TYPE_STRING)){
+                if(udf)
+                    return JiveFunctionEnum.DATE.call(column);
                 return String.format(ConvertIntToTimestampTemplate,column);
         }
 
@@ -0,0 +1,33 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Arrays of nested structs exploded by INLINE give struct columns the nested fields are read from.
+ */
+public class ArraysOfNestedStructsInlineTest extends ArraysOfNestedStructsTest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setInline(true);
+        transforms = super.getSchemaGeneratorResults(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void nestedFieldsReadFromInlinedColumnTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        assertTrue(transform.contains("view_exploded_myarray AS exploded_myarray__id1"));
+        assertTrue(transform.contains("COALESCE(`removed_exploded_myarray__id1`.`_id2`.`_id3`, " +
+                "`exploded_myarray__id1`.`_id2`.`_id3`) as structure_id1"));
+        assertFalse(transform.contains("EXPLODE("));
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Raw documents flattened by jive_flatten give the same rows as LATERAL VIEW EXPLODEs of typed source table.
+ */
+public class ArraysOfStructsFlattenTest extends ArraysOfStructsTest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setFlatten(true);
+        transforms = super.getSchemaGeneratorResults(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void flattenedBySingleCallTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        // source table holds raw documents only
+        assertTrue(transforms.stream().anyMatch(statement -> statement.startsWith(
+                "CREATE EXTERNAL TABLE src_sourcedb_sourcecollection_targettable(`document` STRING)")));
+        assertEquals(1, transform.split("jive_flatten\\(", -1).length - 1);
+        assertTrue(transform.contains("myArray[*]._id STRING;"));
+        assertFalse(transform.contains("EXPLODE"));
+    }
+}
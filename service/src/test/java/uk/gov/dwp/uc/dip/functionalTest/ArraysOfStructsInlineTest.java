@@ -0,0 +1,34 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Arrays of structs exploded by INLINE into a column per struct field give the same rows as EXPLODE into structs.
+ */
+public class ArraysOfStructsInlineTest extends ArraysOfStructsTest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setInline(true);
+        transforms = super.getSchemaGeneratorResults(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void structFieldsInlinedIntoColumnsTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        assertTrue(transform.contains("view_exploded_myarray AS exploded_myarray__id, exploded_myarray__value"));
+        // fields are read from their columns rather than from exploded struct
+        assertTrue(transform.contains("COALESCE(`removed_exploded_myarray__id`, `exploded_myarray__id`) " +
+                "as structure_id"));
+        assertFalse(transform.contains("EXPLODE("));
+    }
+}
@@ -0,0 +1,51 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/***
+ * Conversions applied in outer query to source expressions projected by inner query give the same results.
+ */
+public class ConversionsProjectedTest extends ConversionsJIVETest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setProjectSourceExpressions(true);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    private static int count(String sql, String expression) {
+        Matcher matcher = Pattern.compile("(?<![.`])" + Pattern.quote(expression) + " as projected_\\d+")
+                .matcher(sql);
+        int count = 0;
+        while (matcher.find())
+            count++;
+        return count;
+    }
+
+    @Test
+    public void sourceExpressionsProjectedOnceTest() {
+        String transform = transforms.get(transforms.size() - 1);
+        int inner = transform.indexOf("FROM (SELECT");
+        String outerQuery = transform.substring(0, inner);
+        String innerQuery = transform.substring(inner);
+
+        for (String field : Arrays.asList("`field1`", "`field2`", "`field3`", "`field4`", "`field5`.`d_date`",
+                "`field6`")) {
+            // conversions, including the removed one coalesced with it, read projected aliases only
+            assertFalse(field, outerQuery.contains(field));
+            assertEquals(field, 1, count(innerQuery, field));
+            assertEquals(field, 1, count(innerQuery, "`_removed`." + field));
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Conversions with functions of jive-udf module give the same results as SQL expressions.
+ */
+public class ConversionsUDFTest extends ConversionsJIVETest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setUdf(true);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void sameTimestampAsSQLExpressionTest() {
+        List<String> results = shell.executeQuery("SELECT time_column FROM " + targetTableName +
+                " WHERE time_column IS NOT NULL");
+
+        assertEquals("2016-10-24 05:45:26.911", results.get(0));
+    }
+
+    @Test
+    public void conversionsCallFunctionsTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        assertTrue(transforms.indexOf("CREATE TEMPORARY FUNCTION jive_timestamp AS " +
+                "'uk.gov.dwp.uc.dip.udf.GenericUDFMongoTimestamp'") >= 0);
+        assertTrue(transform.contains("COALESCE(jive_timestamp(`_removed`.`field5`.`d_date`), " +
+                "jive_timestamp(`field5`.`d_date`)) as time_column"));
+        assertTrue(transform.contains("COALESCE(jive_boolean(`_removed`.`field6`), jive_boolean(`field6`)) " +
+                "as bool_column"));
+        // no SQL template is left next to the functions
+        assertFalse(transform.contains("UNIX_TIMESTAMP"));
+        assertFalse(transform.contains("'FALSE'"));
+    }
+}
@@ -0,0 +1,55 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * All data checks of a table evaluated by single scan appending their results to jive_check_results.
+ */
+public class DataQualityTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "data_quality.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_check.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void checkResultsAppendedTest(){
+        List<String> dataQualityChecks = schemaGenerator.generateDataQualitySql(targetTableName);
+        // results table, a grouped scan per unique column and one scan of all other checks
+        assertEquals(4, dataQualityChecks.size());
+        dataQualityChecks.forEach(shell::executeQuery);
+
+        List<String> results = shell.executeQuery("SELECT column_name, check_name, failures, row_count " +
+                "FROM jive_check_results ORDER BY column_name, check_name");
+
+        assertEquals(Arrays.asList(
+                "target_field_1\tnot_nullable\t0\t3",
+                "target_field_1\trange\t1\t3",
+                "target_field_1\tunique\t0\t3",
+                "target_field_2\tallowed\t1\t3",
+                "target_field_2\tmax_length\t0\t3",
+                "target_field_2\tunique\t1\t3",
+                "target_field_3\tnot_nullable\t1\t3",
+                "target_field_3\tregex\t0\t3"), results);
+    }
+}
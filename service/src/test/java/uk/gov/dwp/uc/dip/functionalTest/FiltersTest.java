@@ -0,0 +1,69 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.FilterOperatorEnum;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.TableFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Filter of a path which isn't exploded filters documents before lateral views, filter of exploded path
+ * filters exploded rows.
+ */
+public class FiltersTest extends AbstractHiveTest {
+
+    private List<String> transforms = new ArrayList<>();
+
+    @Override
+    String getTestMappingFileName() {
+        return "testMapping_array_of_structs.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_array_of_structs.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return true;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        HashMap<String,List<TableFilter>> filters = new HashMap<>();
+        filters.put(targetTableName, Arrays.asList(
+                new TableFilter("parentId", FilterOperatorEnum.EQUALS, "'1'"),
+                new TableFilter("myArray[*]._id", FilterOperatorEnum.NOT_EQUALS, "'ID1'")));
+        schemaGenerator.setFilters(filters);
+        transforms = schemaGenerator.transformStoreaAs(targetTableName, "", new LinkedHashMap<>());
+        return transforms;
+    }
+
+    @Test
+    public void explodedRowsFilteredTest(){
+        String sql = "SELECT parentId,structure_id FROM " + targetTableName + " ORDER BY structure_id";
+        List<String> results = shell.executeQuery(sql);
+
+        assertEquals(2, results.size());
+        assertEquals("1\tID0", results.get(0));
+        assertEquals("1\tID2", results.get(1));
+    }
+
+    @Test
+    public void documentsFilteredBeforeLateralViewsTest(){
+        String transform = transforms.get(transforms.size() - 1);
+        int where = transform.indexOf("WHERE COALESCE(`_removed`.`parentId`, `parentId`) = '1'");
+
+        assertTrue(where >= 0);
+        assertTrue(where < transform.indexOf("LATERAL VIEW"));
+    }
+}
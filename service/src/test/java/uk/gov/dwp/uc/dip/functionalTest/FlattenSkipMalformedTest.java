@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Truncated document flattened by jive_flatten is skipped while other documents give their rows.
+ */
+public class FlattenSkipMalformedTest extends AbstractHiveTest {
+
+    private List<String> transforms;
+
+    @Override
+    String getTestMappingFileName() {
+        return "testMapping_array_of_structs.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_array_of_structs_malformed.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setFlatten(true);
+        schemaGenerator.setSkipMalformed(true);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void malformedDocumentSkippedTest(){
+        List<String> results = shell.executeQuery("SELECT COUNT(*), MIN(parentId), MAX(parentId) FROM "
+                + targetTableName);
+
+        // neither rows of nulls nor partial rows of the truncated document
+        assertEquals("3\t1\t1", results.get(0));
+    }
+
+    @Test
+    public void flattenIgnoresMalformedTest(){
+        assertTrue(transforms.stream().anyMatch(statement -> statement.contains(", true) view_flattened")));
+    }
+}
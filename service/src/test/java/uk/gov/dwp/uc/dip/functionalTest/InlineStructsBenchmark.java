@@ -0,0 +1,82 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/***
+ * Compares runtime of transform of arrays of structs exploded by EXPLODE and by INLINE over scaled up documents,
+ * each form is run twice and the second run is measured. Not picked up by the test suite, surefire runs classes
+ * named *Test, run with the number of documents as optional property:
+ * mvn test -Dtest=InlineStructsBenchmark -Dbenchmark.documents=20000
+ */
+public class InlineStructsBenchmark extends AbstractHiveTest {
+    private static final int DOCUMENTS = Integer.getInteger("benchmark.documents", 2000);
+    private static final int ELEMENTS = 50;
+
+    private List<String> explodeTransforms;
+    private List<String> inlineTransforms;
+
+    @Override
+    String getTestMappingFileName() {
+        return "testMapping_array_of_structs.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_array_of_structs.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        StringBuilder documents = new StringBuilder();
+        for (int document = 0; document < DOCUMENTS; document++) {
+            documents.append("{\"parentId\":").append(document).append(",\"myArray\":[");
+            for (int element = 0; element < ELEMENTS; element++) {
+                documents.append(element == 0 ? "" : ",")
+                        .append("{\"_id\":\"ID").append(element).append("\",\"_value\":").append(element).append("}");
+            }
+            documents.append("]}\n");
+        }
+        shell.addResource("${hiveconf:hadoop.tmp.dir}/sourceDB/sourceCollection/scaled.json", documents.toString());
+
+        explodeTransforms = schemaGenerator.transform(targetTableName);
+        schemaGenerator.setInline(true);
+        inlineTransforms = schemaGenerator.transform(targetTableName);
+        return explodeTransforms;
+    }
+
+    private long time(List<String> transforms) {
+        long start = System.nanoTime();
+        for (String transform : transforms) {
+            shell.executeQuery(transform);
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+
+    @Test
+    public void explodeAndInlineCompared(){
+        String count = "SELECT COUNT(*) FROM " + targetTableName;
+
+        // first runs warm HIVE up
+        time(explodeTransforms);
+        time(inlineTransforms);
+        long explodeMillis = time(explodeTransforms);
+        List<String> explodeRows = shell.executeQuery(count);
+        long inlineMillis = time(inlineTransforms);
+        List<String> inlineRows = shell.executeQuery(count);
+
+        System.out.println(String.format("%d documents of %d elements: EXPLODE %d ms, INLINE %d ms"
+                , DOCUMENTS, ELEMENTS, explodeMillis, inlineMillis));
+        // scaled documents and the three elements of the fixture document
+        assertEquals(String.valueOf(DOCUMENTS * ELEMENTS + 3), explodeRows.get(0));
+        assertEquals(explodeRows, inlineRows);
+    }
+}
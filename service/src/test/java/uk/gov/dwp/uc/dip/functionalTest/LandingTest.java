@@ -0,0 +1,47 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Collection copied into ORC landing table and transformed from it gives the same results as transforming JSON.
+ */
+public class LandingTest extends ConversionsJIVETest {
+
+    private List<String> transforms;
+
+    @Test
+    public void landingTableStoredAsOrc() {
+        List<String> results = shell.executeQuery("DESCRIBE FORMATTED lnd_sourcedb_sourcecollection");
+
+        assertTrue(results.stream().anyMatch(line -> line.contains("OrcInputFormat")));
+    }
+
+    @Test
+    public void landingTableHoldsAllDocuments() {
+        assertEquals(shell.executeQuery("SELECT count(*) FROM src_sourcedb_sourcecollection"),
+                shell.executeQuery("SELECT count(*) FROM lnd_sourcedb_sourcecollection"));
+    }
+
+    @Test
+    public void mergeSettingsRestoredAfterLanding() {
+        int landing = transforms.indexOf("CREATE TABLE lnd_sourcedb_sourcecollection STORED AS ORC AS " +
+                "SELECT * FROM src_sourcedb_sourcecollection");
+        List<String> following = transforms.subList(landing, transforms.size());
+
+        assertTrue(landing >= 0);
+        assertTrue(following.contains("SET hive.merge.mapredfiles=false"));
+        assertTrue(following.contains("SET hive.merge.size.per.task=256000000"));
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setLanding(true);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Only the latest version of a document exported more than once is transformed.
+ */
+public class LatestVersionTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "latest_version.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "latest_version.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setDedupKey("_id");
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void latestVersionExplodedTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT id, version, name, item_value FROM latesttable WHERE id = 1 ORDER BY item_value");
+
+        // version is compared as number so 10 is later than 9
+        assertEquals(2, results.size());
+        assertEquals("1\t10\tone-v10\ta", results.get(0));
+        assertEquals("1\t10\tone-v10\tb", results.get(1));
+    }
+
+    @Test
+    public void removedLatestVersionTest(){
+        List<String> results = shell.executeQuery("SELECT version, name FROM latesttable WHERE id = 3");
+
+        assertEquals(1, results.size());
+        assertEquals("5\tthree-removed", results.get(0));
+    }
+
+    @Test
+    public void oneRowPerSingleVersionDocumentTest(){
+        List<String> results = shell.executeQuery("SELECT COUNT(*) FROM latesttable");
+
+        assertEquals("4", results.get(0));
+    }
+}
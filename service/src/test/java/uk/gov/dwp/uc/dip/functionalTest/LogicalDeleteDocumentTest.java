@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.transformtable.RemovedStrategyEnum;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/***
+ * Logically deleted documents sourced by selecting live or removed document once per row.
+ * Arrays are exploded once, from whichever document was selected, so results match LogicalDeleteArrayTest.
+ */
+public class LogicalDeleteDocumentTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "logical_delete_array.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "logical_delete_array.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return true;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setRemovedStrategy(RemovedStrategyEnum.SELECT_DOCUMENT);
+        return schemaGenerator.transform(targetTableName);
+    }
+
+    @Test
+    public void explodeNotNullTest(){
+
+        List<String>  results = util.countNotNULLs(shell, "targettable", "logical_delete_field1");
+
+        assertEquals("12", results.get(0));
+    }
+
+    @Test
+    public void deletedDocumentColumnValuesTest(){
+
+        List<String>  results = util.countEqualValue(shell, "targettable", "logical_delete_field1", "field1_value");
+
+        assertEquals("3", results.get(0));
+
+        results = util.countEqualValue(shell, "targettable", "logical_delete_field1", "removed_field1_value");
+
+        assertEquals("9", results.get(0));
+
+        results = util.countEqualValue(shell, "targettable", "logical_delete_field2", "removed_field2_item1");
+
+        assertEquals("3", results.get(0));
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Lookup rule first in the technical mapping doesn't make the looked up collection the one system columns of
+ * the table come from.
+ */
+public class LookupFirstRowTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "lookup_first_row.csv";
+    }
+
+    // the first row is looked up, so the data file is loaded into the looked up collection
+    @Override
+    String getJsonDataFileName() {
+        return "lookup_team.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        try {
+            shell.addResource("${hiveconf:hadoop.tmp.dir}/sourceDB/sourceCollection/lookup.json"
+                    , new File(Resources.getResource("lookup.json").toURI()));
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void systemColumnsOfOwnCollectionTest(){
+        for(TechnicalMapping rule: schemaGenerator.techMap.getTargetColumns(targetTableName)){
+            if(!rule.isLookup())
+                assertEquals(rule.targetFieldName, "sourceCollection", rule.sourceCollection);
+        }
+    }
+
+    @Test
+    public void latestVersionLookedUpTest(){
+        List<String> results = shell.executeQuery("SELECT agent_id, team_name, team_size FROM agenttable ORDER BY agent_id");
+
+        assertEquals(Arrays.asList("1\talpha\t4", "2\tbeta\tNULL", "3\tNULL\tNULL"), results);
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Fields looked up in the latest version of documents of another collection by map-side join.
+ */
+public class LookupTest extends AbstractHiveTest {
+
+    private List<String> transforms;
+
+    @Override
+    String getTestMappingFileName() {
+        return "lookup.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "lookup.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        try {
+            shell.addResource("${hiveconf:hadoop.tmp.dir}/sourceDB/team/lookup_team.json"
+                    , new File(Resources.getResource("lookup_team.json").toURI()));
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void latestVersionLookedUpTest(){
+        List<String> results = shell.executeQuery("SELECT agent_id, team_name, team_size FROM agenttable ORDER BY agent_id");
+
+        // agent without team keeps its row
+        assertEquals(Arrays.asList("1\talpha\t4", "2\tbeta\tNULL", "3\tNULL\tNULL"), results);
+    }
+
+    @Test
+    public void joinConvertedToMapJoinTest(){
+        assertTrue(transforms.contains("SET hive.auto.convert.join=true"));
+        assertTrue(transforms.get(transforms.size() - 1).contains("MAPJOIN(lookup_0)"));
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Target table populated from two collections by single UNION ALL of their transforms.
+ */
+public class ManyCollectionsToTargetTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "many_collections_to_target.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "shared_source_table.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        try {
+            shell.addResource("${hiveconf:hadoop.tmp.dir}/sourceDB/otherCollection/" + getJsonDataFileName()
+                    , new File(Resources.getResource(getJsonDataFileName()).toURI()));
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void rowsOfBothCollectionsTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT source_collection, COUNT(*) FROM uniontable GROUP BY source_collection ORDER BY source_collection");
+
+        // three documents of the first collection and four rows of exploded children of the other one
+        assertEquals(Arrays.asList("sourceDB.otherCollection\t4", "sourceDB.sourceCollection\t3"), results);
+    }
+
+    @Test
+    public void columnsNotSourcedByCollectionAreNullTest(){
+        assertEquals(Collections.singletonList("2"), util.countNotNULLs(shell, "uniontable", "child_name"));
+        assertEquals(Collections.singletonList("3"), util.countNotNULLs(shell, "uniontable", "name"));
+    }
+}
@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Keys of a super path flattened by jive_flatten are coalesced with the super path as GET_JSON_OBJECTs are.
+ */
+public class ManySourceSamePathFlattenTest extends ManySourceSamePathToTargetTest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setFlatten(true);
+        transforms = super.getSchemaGeneratorResults(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void superPathFlattenedWithItsKeysTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        // the key and its super path are outputs of the same call
+        assertEquals(1, transform.split("jive_flatten\\(", -1).length - 1);
+        assertTrue(transform.contains("field1.a STRING;"));
+        assertTrue(transform.contains(";field1 STRING;"));
+        assertFalse(transform.toUpperCase().contains("GET_JSON_OBJECT"));
+    }
+}
@@ -0,0 +1,36 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Keys of the same json path extracted with single JSON_TUPLE lateral view give the same results as
+ * GET_JSON_OBJECT per key.
+ */
+public class ManySourceSamePathJsonTupleTest extends ManySourceSamePathToTargetTest {
+
+    private List<String> transforms;
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setJsonTuple(true);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void keysOfPathExtractedByOneJsonTupleTest() {
+        String transform = transforms.get(transforms.size() - 1);
+
+        assertFalse(transform.toUpperCase().contains("GET_JSON_OBJECT"));
+        // one JSON_TUPLE per parsed path, both keys of field1 come from one parse of it
+        assertEquals(3, transform.split("JSON_TUPLE\\(", -1).length - 1);
+        assertTrue(transform.contains(
+                "JSON_TUPLE(COALESCE(`_removed`.`field1`, `field1`), 'a', 'b') view_json_tuple_0"));
+    }
+}
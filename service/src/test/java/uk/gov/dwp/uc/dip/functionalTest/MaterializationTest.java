@@ -0,0 +1,58 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Target table with materialize=view meta is a view over the source table, other tables are populated
+ * by the multi-insert.
+ */
+public class MaterializationTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "materialization.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "shared_source_table.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transformCollections();
+    }
+
+    @Test
+    public void viewCreatedTest(){
+        List<String> results = shell.executeQuery("DESCRIBE FORMATTED childview");
+
+        assertTrue(results.stream().anyMatch(r -> r.contains("VIRTUAL_VIEW")));
+    }
+
+    @Test
+    public void viewTransformsWhenQueriedTest(){
+        List<String> results = shell.executeQuery("SELECT COUNT(*) FROM childview");
+
+        // two children of the first document and one row for each document without children
+        assertEquals("4", results.get(0));
+    }
+
+    @Test
+    public void tablePopulatedTest(){
+        List<String> results = shell.executeQuery("DESCRIBE FORMATTED parenttable");
+
+        assertTrue(results.stream().anyMatch(r -> r.contains("MANAGED_TABLE")));
+        assertEquals("3", shell.executeQuery("SELECT COUNT(*) FROM parenttable").get(0));
+    }
+}
@@ -0,0 +1,60 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unique column which estimated distinct count is far below count of values fails by the estimate, the one
+ * which estimate is within the band passes by it.
+ */
+public class NdvBandDataQualityTest extends AbstractHiveTest {
+    private static final int DOCUMENTS = 2000;
+
+    @Override
+    String getTestMappingFileName() {
+        return "data_quality.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_check.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        // unique field1 follows values of the fixture documents, field2 repeats ten values
+        StringBuilder documents = new StringBuilder();
+        for (int document = 0; document < DOCUMENTS; document++) {
+            documents.append(String.format("{\"field1\":\"%d\",\"field2\":\"2%d\",\"field3\":\"3%d\"}\n"
+                    , document + 3, document % 10, document % 10));
+        }
+        shell.addResource("${hiveconf:hadoop.tmp.dir}/sourceDB/sourceCollection/scaled.json", documents.toString());
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void uniquenessDecidedByTierTest(){
+        schemaGenerator.setNdvErrorBand(0.5);
+        schemaGenerator.generateDataQualitySql(targetTableName).forEach(shell::executeQuery);
+
+        List<String> results = shell.executeQuery("SELECT column_name, tier, failures, row_count " +
+                "FROM jive_check_results WHERE check_name = 'unique' ORDER BY column_name");
+
+        assertEquals(2, results.size());
+        // estimate within the band passes without grouping by the column
+        assertEquals("target_field_1\tapproximate\t0\t2003", results.get(0));
+        String[] duplicated = results.get(1).split("\t");
+        assertEquals("target_field_2", duplicated[0]);
+        assertEquals("approximate", duplicated[1]);
+        assertTrue(Long.parseLong(duplicated[2]) > 0);
+    }
+}
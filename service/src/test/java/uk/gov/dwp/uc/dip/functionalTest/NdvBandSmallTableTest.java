@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unique columns with fewer values than bit vectors of the estimate are grouped by exactly.
+ */
+public class NdvBandSmallTableTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "data_quality.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_check.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void uniquenessGroupedExactlyTest(){
+        schemaGenerator.setNdvErrorBand(0.5);
+        schemaGenerator.generateDataQualitySql(targetTableName).forEach(shell::executeQuery);
+
+        List<String> results = shell.executeQuery("SELECT column_name, tier, failures, row_count " +
+                "FROM jive_check_results WHERE check_name = 'unique' ORDER BY column_name");
+
+        // a row per column whether or not it has duplicates
+        assertEquals(Arrays.asList(
+                "target_field_1\texact\t0\t3",
+                "target_field_2\texact\t1\t3"), results);
+    }
+}
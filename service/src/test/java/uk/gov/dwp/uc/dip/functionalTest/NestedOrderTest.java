@@ -0,0 +1,45 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Elements of nested arrays keep the order of the source arrays, not the order rows are collected in.
+ */
+public class NestedOrderTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "nested.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "nested_order.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return true;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transform(targetTableName);
+    }
+
+    @Test
+    public void sourceOrderKeptTest(){
+        List<String> results = shell.executeQuery("SELECT parent_id, CONCAT_WS(',', children.child_name), " +
+                "children[4].child_age, CONCAT_WS(',', tags) FROM " + targetTableName + " ORDER BY parent_id");
+
+        // elements are in descending order so sorting by value instead of position would fail too
+        assertEquals(Arrays.asList(
+                "1\te,d,c,b,a\t1\tz,y,x,w",
+                "2\tb,a\tNULL\ty,x"), results);
+    }
+}
@@ -0,0 +1,52 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Nested table keeps one row per document with fields of each array collected into ARRAY<STRUCT> column.
+ */
+public class NestedTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "nested.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "nested.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return true;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transform(targetTableName);
+    }
+
+    @Test
+    public void oneRowPerDocumentTest(){
+        List<String> results = shell.executeQuery("SELECT parent_id, SIZE(children), SIZE(tags) FROM "
+                + targetTableName + " ORDER BY parent_id");
+
+        // arrays aren't multiplied by each other and missing arrays give empty ones
+        assertEquals(2, results.size());
+        assertEquals("1\t2\t3", results.get(0));
+        assertEquals("2\t0\t0", results.get(1));
+    }
+
+    @Test
+    public void fieldsConvertedInsideStructTest(){
+        List<String> results = shell.executeQuery("SELECT children[0].child_age + 1, children[1].child_name, " +
+                "children[1].child_age, tags[2] FROM " + targetTableName + " WHERE parent_id = 1");
+
+        assertEquals("11\tb\tNULL\tz", results.get(0));
+    }
+}
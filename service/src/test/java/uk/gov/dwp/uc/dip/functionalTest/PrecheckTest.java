@@ -0,0 +1,65 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.SchemaGenerator;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Sampled source documents are checked before the transform which runs only when the checks pass.
+ */
+public class PrecheckTest extends AbstractHiveTest {
+
+    private List<String> transforms;
+
+    @Override
+    String getTestMappingFileName() {
+        return "data_quality.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_check.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setPrecheckRows(100);
+        transforms = schemaGenerator.transform(hiveTargetTable);
+        return transforms;
+    }
+
+    @Test
+    public void transformedAfterPassedChecksTest(){
+        assertTrue(transforms.stream().anyMatch(transform -> transform.startsWith("SELECT ASSERT_TRUE")));
+        assertEquals(Collections.singletonList("3"), shell.executeQuery("SELECT COUNT(*) FROM " + targetTableName));
+    }
+
+    @Test
+    public void transformNotRunAfterFailedCheckTest() throws Exception {
+        SchemaGenerator generator = new SchemaGenerator(Resources.getResource("precheck.csv").getPath());
+        generator.setSourceJsonFileLocation("${hiveconf:hadoop.tmp.dir}");
+        generator.setPrecheckRows(100);
+
+        // not_nullable path is missing in every document
+        try {
+            for (String transform : generator.transform("precheckTable")) {
+                shell.executeQuery(transform);
+            }
+            fail("precheck passed");
+        } catch (RuntimeException e) {
+            assertTrue(shell.executeQuery("SHOW TABLES 'precheck*'").isEmpty());
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Profile of all columns of a table computed by single scan appending a row per column to jive_profile.
+ */
+public class ProfileTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "data_check.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_check.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transform(hiveTargetTable);
+    }
+
+    @Test
+    public void profileAppendedTest(){
+        schemaGenerator.generateProfileSql(targetTableName).forEach(shell::executeQuery);
+
+        List<String> results = shell.executeQuery("SELECT column_name, row_count, null_count, min_value, " +
+                "max_value, distinct_count, max_length FROM jive_profile " +
+                "WHERE column_name LIKE 'target_field_%' ORDER BY column_name");
+
+        // distinct count is estimated, exact for so few values
+        assertEquals(Arrays.asList(
+                "target_field_1\t3\t0\t0\t2\t3\t1",
+                "target_field_2\t3\t0\t0\t2\t3\t1",
+                "target_field_3\t3\t0\t20\t21\t2\t2",
+                "target_field_4\t3\t1\t30\t31\t2\t2"), results);
+    }
+
+    @Test
+    public void profilePartitionedByRunDateTest(){
+        schemaGenerator.generateProfileSql(targetTableName).forEach(shell::executeQuery);
+
+        List<String> results = shell.executeQuery("SELECT COUNT(*) FROM jive_profile " +
+                "WHERE run_date = CAST(CURRENT_DATE AS STRING) AND target_table = '" + targetTableName + "'");
+
+        // four mapped columns and four of the record metadata
+        assertEquals("8", results.get(0));
+    }
+}
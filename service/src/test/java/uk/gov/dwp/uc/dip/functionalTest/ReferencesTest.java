@@ -0,0 +1,54 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Values of exploded child table which aren't keys of its parent table are orphans.
+ */
+public class ReferencesTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "references.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "references.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transformCollections();
+    }
+
+    @Test
+    public void orphansCountedAndSampledTest(){
+        List<String> dataChecks = schemaGenerator.generateDataChecks("childTable");
+        assertEquals(2, dataChecks.size());
+
+        assertEquals(Collections.singletonList("2"), shell.executeQuery(dataChecks.get(0)));
+        List<String> samples = shell.executeQuery(dataChecks.get(1));
+        Collections.sort(samples);
+        assertEquals(Arrays.asList("3", "4"), samples);
+    }
+
+    @Test
+    public void orphansCountedBySingleScanTest(){
+        schemaGenerator.generateDataQualitySql("childTable").forEach(shell::executeQuery);
+
+        assertEquals(Collections.singletonList("parent_id\treferences\t2\t4"), shell.executeQuery(
+                "SELECT column_name, check_name, failures, row_count FROM jive_check_results"));
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Array exploded by two target tables of a collection is exploded once into temporary table both tables read.
+ */
+public class SharedExplodesTest extends AbstractHiveTest {
+
+    private List<String> transforms;
+
+    @Override
+    String getTestMappingFileName() {
+        return "shared_explodes.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "shared_explodes.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setShareExplodes(true);
+        transforms = schemaGenerator.transformCollections();
+        return transforms;
+    }
+
+    @Test
+    public void arrayExplodedOnceTest(){
+        long explodes = transforms.stream()
+                .filter(transform -> transform.contains("EXPLODE(`children`)")).count();
+
+        assertEquals(1, explodes);
+        assertTrue(transforms.stream().anyMatch(transform -> transform.startsWith("CREATE TEMPORARY TABLE")));
+    }
+
+    @Test
+    public void childTablePopulatedTest(){
+        List<String> results = shell.executeQuery("SELECT parent_id, child_name FROM childtable " +
+                "ORDER BY parent_id, child_name");
+
+        // two children of the first document and one row for the document without children
+        assertEquals(3, results.size());
+        assertEquals("1\ta", results.get(0));
+        assertEquals("2\tNULL", results.get(2));
+    }
+
+    @Test
+    public void toyTablePopulatedTest(){
+        List<String> results = shell.executeQuery("SELECT COUNT(*) FROM toytable");
+
+        // two toys of the first child, one row for the second child and one for the document without children
+        assertEquals("4", results.get(0));
+        assertEquals(Collections.singletonList("2"), util.countNotNULLs(shell, "toytable", "toy"));
+    }
+}
@@ -0,0 +1,39 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.sourcetable.SerDeEnum;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/***
+ * Source tables read with SerDe of jive-udf module populate target tables the same way as with openx SerDe.
+ */
+public class SharedSourceTableJiveSerDeTest extends SharedSourceTableTest {
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setSerDe(SerDeEnum.JIVE);
+        return super.getSchemaGeneratorResults(hiveTargetTable);
+    }
+
+    @Test
+    public void projectedColumnReadTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT name FROM src_sourcedb_sourcecollection WHERE parentid = '3'");
+
+        assertEquals("three", results.get(0));
+    }
+
+    @Test
+    public void sourceTableReadByJiveSerDeTest(){
+        List<String> results = shell.executeQuery("DESCRIBE FORMATTED src_sourcedb_sourcecollection");
+
+        assertTrue(results.stream().anyMatch(line -> line.contains("SerDe Library")
+                && line.contains("uk.gov.dwp.uc.dip.udf.serde.JiveJsonSerDe")));
+        assertFalse(results.stream().anyMatch(line -> line.contains("org.openx.data.jsonserde.JsonSerDe")));
+    }
+}
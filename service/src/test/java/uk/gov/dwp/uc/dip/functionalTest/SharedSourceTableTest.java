@@ -0,0 +1,57 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Many target tables populated from one source table per collection with multi-insert.
+ */
+public class SharedSourceTableTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "shared_source_table.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "shared_source_table.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        return schemaGenerator.transformCollections();
+    }
+
+    @Test
+    public void parentTablePopulatedTest(){
+        List<String> results = shell.executeQuery("SELECT parent_id, name FROM parenttable ORDER BY parent_id");
+
+        assertEquals(3, results.size());
+        assertEquals("1\tone", results.get(0));
+    }
+
+    @Test
+    public void childTablePopulatedTest(){
+        List<String> results = shell.executeQuery("SELECT COUNT(*) FROM childtable");
+
+        // two children of the first document and one row for each document without children
+        assertEquals("4", results.get(0));
+        assertEquals(Collections.singletonList("2"), util.countNotNULLs(shell, "childtable", "child_name"));
+        assertEquals(Collections.singletonList("1"), util.countEqualValue(shell, "childtable", "child_age", "11"));
+    }
+
+    @Test
+    public void tableSharingLateralViewsPopulatedTest(){
+        assertEquals(Collections.singletonList("3"), util.countNotNULLs(shell, "nametable", "name"));
+    }
+}
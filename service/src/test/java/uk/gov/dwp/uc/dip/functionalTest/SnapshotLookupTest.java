@@ -0,0 +1,63 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Fields of snapshots looked up in the last snapshot of the range of the looked up collection.
+ */
+public class SnapshotLookupTest extends AbstractHiveTest {
+
+    private final static String SNAPSHOTS_LOCATION = "${hiveconf:hadoop.tmp.dir}/snapshots";
+
+    @Override
+    String getTestMappingFileName() {
+        return "lookup.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "lookup.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        try {
+            for (String snapshotDate : Arrays.asList("2017-01-01", "2017-01-02")) {
+                shell.addResource(String.format("%s/%s/sourceDB/sourceCollection/%s"
+                        , SNAPSHOTS_LOCATION, snapshotDate, getJsonDataFileName())
+                        , new File(Resources.getResource(getJsonDataFileName()).toURI()));
+            }
+            // team collection is exported only with the last snapshot
+            shell.addResource(SNAPSHOTS_LOCATION + "/2017-01-02/sourceDB/team/lookup_team.json"
+                    , new File(Resources.getResource("lookup_team.json").toURI()));
+        } catch (URISyntaxException e) {
+            throw new RuntimeException(e);
+        }
+        schemaGenerator.setSourceJsonFileLocation(SNAPSHOTS_LOCATION);
+        schemaGenerator.setSnapshotRange("2017-01-01", "2017-01-02");
+        return schemaGenerator.transformCollections();
+    }
+
+    @Test
+    public void lastSnapshotLookedUpTest(){
+        List<String> results = shell.executeQuery("SELECT snapshot_date, agent_id, team_name FROM agenttable " +
+                "ORDER BY snapshot_date, agent_id");
+
+        assertEquals(Arrays.asList(
+                "2017-01-01\t1\talpha", "2017-01-01\t2\tbeta", "2017-01-01\t3\tNULL",
+                "2017-01-02\t1\talpha", "2017-01-02\t2\tbeta", "2017-01-02\t3\tNULL"), results);
+    }
+}
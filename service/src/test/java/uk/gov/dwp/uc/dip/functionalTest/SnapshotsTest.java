@@ -0,0 +1,75 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+
+import java.io.File;
+import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Range of daily snapshots attached as partitions of the source table and transformed in one job
+ * into target tables partitioned by snapshot date.
+ */
+public class SnapshotsTest extends AbstractHiveTest {
+
+    private final static String SNAPSHOTS_LOCATION = "${hiveconf:hadoop.tmp.dir}/snapshots";
+
+    @Override
+    String getTestMappingFileName() {
+        return "shared_source_table.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "shared_source_table.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        // the same documents exported on three days, only the first two are transformed
+        for (String snapshotDate : Arrays.asList("2017-01-01", "2017-01-02", "2017-01-03")) {
+            try {
+                shell.addResource(String.format("%s/%s/sourceDB/sourceCollection/%s"
+                        , SNAPSHOTS_LOCATION, snapshotDate, getJsonDataFileName())
+                        , new File(Resources.getResource(getJsonDataFileName()).toURI()));
+            } catch (URISyntaxException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        schemaGenerator.setSourceJsonFileLocation(SNAPSHOTS_LOCATION);
+        schemaGenerator.setSnapshotRange("2017-01-01", "2017-01-02");
+        return schemaGenerator.transformCollections();
+    }
+
+    @Test
+    public void sourcePartitionPerSnapshotTest(){
+        List<String> results = shell.executeQuery("SHOW PARTITIONS src_sourcedb_sourcecollection");
+
+        assertEquals(Arrays.asList("snapshot_date=2017-01-01", "snapshot_date=2017-01-02"), results);
+    }
+
+    @Test
+    public void targetPartitionPerSnapshotTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT snapshot_date, COUNT(*) FROM parenttable GROUP BY snapshot_date ORDER BY snapshot_date");
+
+        assertEquals(Arrays.asList("2017-01-01\t3", "2017-01-02\t3"), results);
+    }
+
+    @Test
+    public void explodedTablePartitionedTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT COUNT(*) FROM childtable WHERE snapshot_date = '2017-01-02'");
+
+        assertEquals("4", results.get(0));
+    }
+}
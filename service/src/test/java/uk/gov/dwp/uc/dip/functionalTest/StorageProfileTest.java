@@ -0,0 +1,72 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Partitioning, bucketing, sort order and ORC table properties of target tables driven by mapping meta.
+ */
+public class StorageProfileTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "storage_profile.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "storage_profile.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return false;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        List<String> results = new ArrayList<>(schemaGenerator.transform("eventTable"));
+        results.addAll(schemaGenerator.transform("bucketTable"));
+        return results;
+    }
+
+    @Test
+    public void partitionedByColumnAndDerivedMonthTest(){
+        List<String> results = shell.executeQuery("SHOW PARTITIONS eventtable");
+
+        assertEquals(Arrays.asList(
+                "event_type=a/created_ts_month=2017-01",
+                "event_type=a/created_ts_month=2017-02",
+                "event_type=b/created_ts_month=2017-02"), results);
+    }
+
+    @Test
+    public void partitionedTablePopulatedTest(){
+        List<String> results = shell.executeQuery(
+                "SELECT event_id FROM eventtable WHERE created_ts_month = '2017-01' ORDER BY event_id");
+
+        assertEquals(Arrays.asList("1", "2"), results);
+    }
+
+    @Test
+    public void orcTablePropertiesTest(){
+        List<String> results = shell.executeQuery("SHOW TBLPROPERTIES eventtable");
+
+        assertTrue(results.contains("orc.compress\tSNAPPY"));
+        assertTrue(results.contains("orc.bloom.filter.columns\tevent_id"));
+    }
+
+    @Test
+    public void bucketedTableTest(){
+        List<String> results = shell.executeQuery("DESCRIBE FORMATTED buckettable");
+
+        assertTrue(results.stream().anyMatch(line -> line.startsWith("Num Buckets:") && line.contains("2")));
+        assertEquals("4", shell.executeQuery("SELECT COUNT(*) FROM buckettable").get(0));
+    }
+}
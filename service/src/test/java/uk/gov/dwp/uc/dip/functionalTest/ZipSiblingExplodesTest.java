@@ -0,0 +1,64 @@
+package uk.gov.dwp.uc.dip.functionalTest;
+
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/***
+ * Sibling arrays exploded together by position, so 2 arrays of 3 elements give 3 rows instead of 9.
+ */
+public class ZipSiblingExplodesTest extends AbstractHiveTest {
+
+    @Override
+    String getTestMappingFileName() {
+        return "testMapping_arrays.csv";
+    }
+
+    @Override
+    String getJsonDataFileName() {
+        return "data_arrays.json";
+    }
+
+    @Override
+    boolean outputSourceAndTargetTableData() {
+        return true;
+    }
+
+    @Override
+    List<String> getSchemaGeneratorResults(String hiveTargetTable) {
+        schemaGenerator.setZipSiblingExplodes(true);
+        return schemaGenerator.transform(targetTableName);
+    }
+
+    @Test
+    public void arrayZippedTest(){
+        String sql = "SELECT count(*) FROM " + targetTableName
+                + " WHERE array3 IS NOT NULL";
+        List<String> results =  shell.executeQuery(sql);
+
+        assertEquals("3", results.get(0));
+    }
+
+    @Test
+    public void arrayElementsAlignedTest(){
+        String sql = "SELECT array3, array1 FROM " + targetTableName + " ORDER BY array3";
+        List<String> results = shell.executeQuery(sql);
+
+        assertEquals(3, results.size());
+        assertEquals("ID0\t0", results.get(0));
+        assertEquals("ID1\t1", results.get(1));
+        assertEquals("ID2\t2", results.get(2));
+    }
+
+    @Test
+    public void arraySingleElementTest(){
+        String sql = "SELECT arrayElement0 FROM " + targetTableName;
+        List<String> results = shell.executeQuery(sql);
+
+        assertEquals(3, results.size());
+        assertEquals("ID0", results.get(0));
+    }
+}
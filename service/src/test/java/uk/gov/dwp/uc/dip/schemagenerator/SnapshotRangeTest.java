@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.dip.schemagenerator;
+
+import com.google.common.io.Resources;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Snapshot range has to be valid dates in order and can't be combined with some options.
+ */
+public class SnapshotRangeTest {
+
+    private SchemaGenerator schemaGenerator;
+
+    @Before
+    public void setUp() throws IOException {
+        schemaGenerator = new SchemaGenerator(Resources.getResource("shared_source_table.csv").getPath(), "/data");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void snapshotsNotLandedTest(){
+        schemaGenerator.setSnapshotRange("2017-01-01", "2017-01-02");
+        schemaGenerator.setLanding(true);
+
+        schemaGenerator.transformCollections();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void malformedDateRejectedTest(){
+        schemaGenerator.setSnapshotRange("2017-01-01", "2017-1-2");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reversedRangeRejectedTest(){
+        schemaGenerator.setSnapshotRange("2017-01-02", "2017-01-01");
+    }
+
+    @Test
+    public void singleDayRangeTest(){
+        schemaGenerator.setSnapshotRange("2017-01-01", "2017-01-01");
+
+        assertTrue(schemaGenerator.transformCollections().stream()
+                .anyMatch(statement -> statement.contains("PARTITION (snapshot_date='2017-01-01')")));
+    }
+}
@@ -0,0 +1,102 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+import com.google.common.io.Resources;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.SchemaGenerator;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Statements of incremental load, HIVE 1.2 can't run MERGE so only the generated script is checked.
+ */
+public class IncrementalSqlTest {
+
+    private SchemaGenerator schemaGenerator;
+
+    @Before
+    public void setUp() throws IOException {
+        schemaGenerator = new SchemaGenerator(Resources.getResource("incremental.csv").getPath(), "/data");
+        schemaGenerator.setIncremental(true);
+    }
+
+    private static int indexOf(List<String> statements, String prefix){
+        for(int i = 0; i < statements.size(); i++){
+            if(statements.get(i).startsWith(prefix))
+                return i;
+        }
+        return -1;
+    }
+
+    @Test
+    public void changesMergedTest(){
+        List<String> statements = schemaGenerator.transform("keyedTable");
+
+        int watermark = indexOf(statements, "CREATE TABLE IF NOT EXISTS " + TransformTableGenerator.WATERMARK_TABLE);
+        int stage = indexOf(statements, "CREATE TEMPORARY TABLE stg_keyedtable AS");
+        int merge = indexOf(statements, "MERGE INTO keyedtable AS target USING stg_keyedtable AS changes " +
+                "ON target.parent_id = changes.parent_id");
+        int watermarkUpdate = indexOf(statements, "INSERT INTO TABLE " + TransformTableGenerator.WATERMARK_TABLE
+                + " SELECT 'keyedtable'");
+
+        assertTrue(watermark >= 0);
+        assertTrue(watermark < stage);
+        assertTrue(stage < merge);
+        assertTrue(merge < watermarkUpdate);
+        assertEquals(statements.size() - 1, watermarkUpdate);
+        // only documents changed since the last load are staged
+        assertTrue(statements.get(stage).contains("FROM " + TransformTableGenerator.WATERMARK_TABLE +
+                " WHERE target_table = 'keyedtable'"));
+        assertTrue(statements.get(merge).contains("WHEN MATCHED AND changes.removed_ts IS NOT NULL THEN DELETE"));
+        assertTrue(statements.get(merge).contains("WHEN NOT MATCHED AND changes.removed_ts IS NULL THEN INSERT"));
+    }
+
+    @Test
+    public void latestChangeOfKeyStagedTest(){
+        List<String> statements = schemaGenerator.transform("keyedTable");
+        String stage = statements.get(indexOf(statements, "CREATE TEMPORARY TABLE stg_keyedtable AS"));
+
+        // MERGE fails when more than one change matches a row
+        assertTrue(stage.startsWith("CREATE TEMPORARY TABLE stg_keyedtable AS SELECT removed_ts, last_modified_ts" +
+                ", created_ts, version, parent_id, name FROM (SELECT changes.*, ROW_NUMBER() OVER " +
+                "(PARTITION BY parent_id ORDER BY last_modified_ts DESC, version DESC) AS change_rank"));
+        assertTrue(stage.endsWith(") changes) ranked WHERE change_rank = 1"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void explodedTableRejectedTest(){
+        schemaGenerator.transform("childTable");
+    }
+
+    @Test
+    public void compactionRequestedTest(){
+        schemaGenerator.setCompactIncremental(true);
+        List<String> statements = schemaGenerator.transform("keyedTable");
+
+        assertEquals("ALTER TABLE keyedtable COMPACT 'major'", statements.get(statements.size() - 1));
+    }
+
+    @Test
+    public void tableWithoutKeyRebuiltTest(){
+        List<String> statements = schemaGenerator.transform("plainTable");
+
+        assertTrue(statements.contains("DROP TABLE IF EXISTS plainTable"));
+        assertTrue(indexOf(statements, "CREATE TABLE plaintable") >= 0);
+        assertEquals(-1, indexOf(statements, "MERGE"));
+        assertEquals(-1, indexOf(statements, "CREATE TABLE IF NOT EXISTS " + TransformTableGenerator.WATERMARK_TABLE));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void keyedTableOfManyCollectionsRejectedTest(){
+        schemaGenerator.transform("unionTable");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void collectionsRejectedTest(){
+        schemaGenerator.transformCollectionsStoreAs("", new LinkedHashMap<>());
+    }
+}
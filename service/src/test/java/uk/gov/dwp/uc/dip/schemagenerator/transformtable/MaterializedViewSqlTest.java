@@ -0,0 +1,54 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+import com.google.common.io.Resources;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.schemagenerator.SchemaGenerator;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Statements of materialized views, HIVE 1.2 has no materialized views so only the generated script is checked.
+ */
+public class MaterializedViewSqlTest {
+
+    private SchemaGenerator schemaGenerator;
+
+    @Before
+    public void setUp() throws IOException {
+        schemaGenerator = new SchemaGenerator(Resources.getResource("materialization.csv").getPath(), "/data");
+        schemaGenerator.setMaterialization(MaterializationEnum.MATERIALIZED);
+    }
+
+    private static void assertViewKeptAndRebuilt(List<String> statements){
+        int create = -1;
+        for(int i = 0; i < statements.size(); i++){
+            if(statements.get(i).startsWith("CREATE MATERIALIZED VIEW IF NOT EXISTS parenttable AS SELECT"))
+                create = i;
+        }
+
+        assertTrue(create >= 0);
+        assertEquals("ALTER MATERIALIZED VIEW parenttable REBUILD", statements.get(create + 1));
+        assertTrue(statements.subList(0, create).contains("SET hive.materializedview.rebuild.incremental=true"));
+        // materialized view is kept between runs so that it can be rebuilt incrementally
+        assertFalse(statements.stream().anyMatch(s -> s.startsWith("DROP") && s.contains("parenttable")
+                && !s.contains("src_")));
+    }
+
+    @Test
+    public void materializedViewTest(){
+        assertViewKeptAndRebuilt(schemaGenerator.transform("parentTable"));
+    }
+
+    @Test
+    public void materializedViewOfCollectionTest(){
+        List<String> statements = schemaGenerator.transformCollections();
+
+        assertViewKeptAndRebuilt(statements);
+        // materialize meta of the table overrides the default
+        assertTrue(statements.contains("DROP VIEW IF EXISTS childview"));
+    }
+}
@@ -0,0 +1,56 @@
+package uk.gov.dwp.uc.dip.schemagenerator.transformtable;
+
+import com.google.common.io.Resources;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.dwp.uc.dip.mappingreader.TechnicalMappingReader;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class StorageProfileTest {
+
+    private TechnicalMappingReader techMap;
+
+    @Before
+    public void setUp() throws IOException {
+        techMap = TechnicalMappingReader.getInstance(Resources.getResource("bad_bucket.csv").getPath());
+        techMap.read();
+    }
+
+    private String getError(String targetTable){
+        try {
+            StorageProfile.create(techMap.getTargetColumns(targetTable));
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+        fail(targetTable + " has valid storage meta");
+        return null;
+    }
+
+    @Test
+    public void bucketWithoutNumberTest(){
+        String error = getError("noNumberTable");
+
+        assertTrue(error.contains("noNumberTable"));
+        assertTrue(error.contains("event_id has bucket meta"));
+    }
+
+    @Test
+    public void bucketWithBadNumberTest(){
+        String error = getError("badNumberTable");
+
+        assertTrue(error.contains("badNumberTable"));
+        assertTrue(error.contains("bucket=x"));
+    }
+
+    @Test
+    public void unknownPartitionUnitTest(){
+        String error = getError("badUnitTable");
+
+        assertTrue(error.contains("badUnitTable"));
+        assertTrue(error.contains("event_date has partition=week"));
+        assertTrue(error.contains("[year, month, date]"));
+    }
+}
@@ -0,0 +1,68 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Converts yyyyMMdd date held by integer or string into date.
+ */
+@Description(name = "jive_date",
+        value = "_FUNC_(yyyyMMdd) - converts integer or string e.g. 20170102 into date")
+public class GenericUDFCompactDate extends GenericUDF {
+    private transient PrimitiveObjectInspector inputInspector;
+    private final transient DateWritable result = new DateWritable();
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 1)
+            throw new UDFArgumentLengthException("jive_date takes one argument");
+        if (!(arguments[0] instanceof PrimitiveObjectInspector))
+            throw new UDFArgumentTypeException(0, "jive_date takes integer or string argument");
+        inputInspector = (PrimitiveObjectInspector) arguments[0];
+        switch (inputInspector.getPrimitiveCategory()) {
+            case BYTE:
+            case SHORT:
+            case INT:
+            case LONG:
+            case STRING:
+                break;
+            default:
+                throw new UDFArgumentTypeException(0, "jive_date takes integer or string argument");
+        }
+        return PrimitiveObjectInspectorFactory.writableDateObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Object value = arguments[0].get();
+        if (value == null)
+            return null;
+        long days;
+        if (inputInspector instanceof StringObjectInspector) {
+            Text text = ((StringObjectInspector) inputInspector).getPrimitiveWritableObject(value);
+            days = JiveConversions.parseCompactDate(text.getBytes(), 0, text.getLength());
+        } else {
+            days = JiveConversions.parseCompactDate(PrimitiveObjectInspectorUtils.getLong(value, inputInspector));
+        }
+        if (days == JiveConversions.INVALID_DATE)
+            return null;
+        result.set((int) days);
+        return result;
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return String.format("jive_date(%s)", children[0]);
+    }
+}
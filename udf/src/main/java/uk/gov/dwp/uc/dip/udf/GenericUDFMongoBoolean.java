@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Converts string into boolean, FALSE, NO, N and 0 in any case are false and any other value is true.
+ */
+@Description(name = "jive_boolean",
+        value = "_FUNC_(str) - false when str is FALSE, NO, N or 0 in any case, otherwise true")
+public class GenericUDFMongoBoolean extends GenericUDF {
+    private transient StringObjectInspector inputInspector;
+    private final transient BooleanWritable result = new BooleanWritable();
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 1)
+            throw new UDFArgumentLengthException("jive_boolean takes one argument");
+        if (!(arguments[0] instanceof StringObjectInspector))
+            throw new UDFArgumentTypeException(0, "jive_boolean takes string argument");
+        inputInspector = (StringObjectInspector) arguments[0];
+        return PrimitiveObjectInspectorFactory.writableBooleanObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Object value = arguments[0].get();
+        if (value == null)
+            return null;
+        Text text = inputInspector.getPrimitiveWritableObject(value);
+        result.set(JiveConversions.parseBoolean(text.getBytes(), 0, text.getLength()));
+        return result;
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return String.format("jive_boolean(%s)", children[0]);
+    }
+}
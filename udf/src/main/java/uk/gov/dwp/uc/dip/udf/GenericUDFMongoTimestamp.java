@@ -0,0 +1,53 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDF;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.io.Text;
+
+import java.sql.Timestamp;
+
+/**
+ * Converts Mongo d_date string with optional offset into UTC timestamp.
+ */
+@Description(name = "jive_timestamp",
+        value = "_FUNC_(d_date) - converts Mongo date e.g. 2016-10-24T05:45:26.911+0100 into UTC timestamp")
+public class GenericUDFMongoTimestamp extends GenericUDF {
+    private transient StringObjectInspector inputInspector;
+    private final transient TimestampWritable result = new TimestampWritable();
+
+    @Override
+    public ObjectInspector initialize(ObjectInspector[] arguments) throws UDFArgumentException {
+        if (arguments.length != 1)
+            throw new UDFArgumentLengthException("jive_timestamp takes one argument");
+        if (!(arguments[0] instanceof StringObjectInspector))
+            throw new UDFArgumentTypeException(0, "jive_timestamp takes string argument");
+        inputInspector = (StringObjectInspector) arguments[0];
+        return PrimitiveObjectInspectorFactory.writableTimestampObjectInspector;
+    }
+
+    @Override
+    public Object evaluate(DeferredObject[] arguments) throws HiveException {
+        Object value = arguments[0].get();
+        if (value == null)
+            return null;
+        Text text = inputInspector.getPrimitiveWritableObject(value);
+        Timestamp timestamp = JiveConversions.parseMongoTimestamp(text.getBytes(), 0, text.getLength());
+        if (timestamp == null)
+            return null;
+        result.set(timestamp);
+        return result;
+    }
+
+    @Override
+    public String getDisplayString(String[] children) {
+        return String.format("jive_timestamp(%s)", children[0]);
+    }
+}
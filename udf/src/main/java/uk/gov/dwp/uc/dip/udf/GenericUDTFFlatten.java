@@ -0,0 +1,143 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentTypeException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.BooleanObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.StringObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonProcessingException;
+import uk.gov.dwp.uc.dip.udf.flatten.DocumentFlattener;
+import uk.gov.dwp.uc.dip.udf.flatten.FlattenSpec;
+import uk.gov.dwp.uc.dip.udf.serde.PrimitiveValueReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Flattens JSON document into all rows of a target table in one parse, instead of a SerDe decoding the whole
+ * document into structs for LATERAL VIEW EXPLODEs and GET_JSON_OBJECTs to walk again.
+ * Outputs c0, c1, ... follow the spec, see {@link FlattenSpec}, and are converted into their types as HIVE
+ * casts strings, objects and arrays flattened into strings give their JSON text.
+ */
+@Description(name = "jive_flatten",
+        value = "_FUNC_(document, spec[, ignoreMalformed]) - flattens JSON document into rows of columns c0, c1, " +
+                "... described by constant spec of 'path type' pairs separated by ';', malformed document gives " +
+                "no rows instead of failing when constant ignoreMalformed is true")
+public class GenericUDTFFlatten extends GenericUDTF {
+    private transient StringObjectInspector documentInspector;
+    private transient DocumentFlattener flattener;
+    private transient PrimitiveValueReader[] converters;
+    private transient Writable[] writables;
+    private transient Object[] forwardValues;
+    private transient boolean ignoreMalformed;
+
+    @Override
+    public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
+        List<? extends StructField> arguments = argOIs.getAllStructFieldRefs();
+        if (arguments.size() != 2 && arguments.size() != 3)
+            throw new UDFArgumentLengthException("jive_flatten takes two or three arguments");
+        ObjectInspector document = arguments.get(0).getFieldObjectInspector();
+        if (!(document instanceof StringObjectInspector))
+            throw new UDFArgumentTypeException(0, "jive_flatten takes string document");
+        ObjectInspector spec = arguments.get(1).getFieldObjectInspector();
+        if (!(spec instanceof StringObjectInspector && spec instanceof ConstantObjectInspector))
+            throw new UDFArgumentTypeException(1, "jive_flatten takes constant string spec");
+        documentInspector = (StringObjectInspector) document;
+        if (arguments.size() == 3) {
+            ObjectInspector ignore = arguments.get(2).getFieldObjectInspector();
+            if (!(ignore instanceof BooleanObjectInspector && ignore instanceof ConstantObjectInspector))
+                throw new UDFArgumentTypeException(2, "jive_flatten takes constant boolean ignoreMalformed");
+            Object ignoreValue = ((ConstantObjectInspector) ignore).getWritableConstantValue();
+            ignoreMalformed = ignoreValue != null && ((BooleanObjectInspector) ignore).get(ignoreValue);
+        }
+
+        FlattenSpec flattenSpec;
+        try {
+            flattenSpec = FlattenSpec.parse(((ConstantObjectInspector) spec).getWritableConstantValue().toString());
+        } catch (IllegalArgumentException e) {
+            throw new UDFArgumentException(e.getMessage());
+        }
+        flattener = new DocumentFlattener(flattenSpec);
+
+        List<String> types = flattenSpec.getTypes();
+        converters = new PrimitiveValueReader[types.size()];
+        writables = new Writable[types.size()];
+        forwardValues = new Object[types.size()];
+        List<String> names = new ArrayList<>();
+        List<ObjectInspector> inspectors = new ArrayList<>();
+        JsonFactory factory = new JsonFactory();
+        for (int i = 0; i < types.size(); i++) {
+            PrimitiveTypeInfo typeInfo = getPrimitiveTypeInfo(types.get(i));
+            try {
+                converters[i] = new PrimitiveValueReader(typeInfo, factory, true);
+            } catch (SerDeException e) {
+                throw new UDFArgumentException("jive_flatten does not support type " + types.get(i));
+            }
+            writables[i] = converters[i].newWritable();
+            names.add("c" + i);
+            inspectors.add(PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(typeInfo));
+        }
+        return ObjectInspectorFactory.getStandardStructObjectInspector(names, inspectors);
+    }
+
+    private static PrimitiveTypeInfo getPrimitiveTypeInfo(String type) throws UDFArgumentException {
+        TypeInfo typeInfo;
+        try {
+            typeInfo = TypeInfoUtils.getTypeInfoFromTypeString(type.toLowerCase());
+        } catch (IllegalArgumentException e) {
+            throw new UDFArgumentException("jive_flatten does not support type " + type);
+        }
+        if (!(typeInfo instanceof PrimitiveTypeInfo))
+            throw new UDFArgumentException("jive_flatten outputs primitive types only, not " + type);
+        return (PrimitiveTypeInfo) typeInfo;
+    }
+
+    @Override
+    public void process(Object[] args) throws HiveException {
+        if (args[0] == null)
+            return;
+        Text document = documentInspector.getPrimitiveWritableObject(args[0]);
+        try {
+            flattener.flatten(document.getBytes(), 0, document.getLength(), this::forwardRow);
+        } catch (JsonProcessingException e) {
+            // document is parsed before its rows are forwarded, so skipped document gives no partial rows
+            if (!ignoreMalformed)
+                throw new HiveException("Malformed JSON: " + document, e);
+        } catch (IOException e) {
+            throw new HiveException(e);
+        }
+    }
+
+    private void forwardRow(String[] values) throws HiveException {
+        for (int i = 0; i < values.length; i++) {
+            forwardValues[i] = values[i] == null ? null : converters[i].fromText(values[i], writables[i]);
+        }
+        forward(forwardValues);
+    }
+
+    @Override
+    public void close() throws HiveException {
+    }
+
+    @Override
+    public String toString() {
+        return "jive_flatten";
+    }
+}
@@ -0,0 +1,159 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Conversions of Mongo export values parsed straight from UTF-8 bytes, shared by the UDFs.
+ * Values which can't be converted give null or INVALID_DATE.
+ */
+public final class JiveConversions {
+
+    /**
+     * Returned by date conversions when the value isn't a valid yyyyMMdd date
+     */
+    public final static long INVALID_DATE = Long.MIN_VALUE;
+
+    private final static byte[][] FALSE_VALUES = {
+            "FALSE".getBytes(), "NO".getBytes(), "N".getBytes(), "0".getBytes()};
+
+    private JiveConversions() {
+    }
+
+    /**
+     * Parses Mongo d_date e.g. 2016-10-24T05:45:26.911+0100 or 2016-10-24 05:45:26.911Z into UTC timestamp.
+     * Fraction of second is optional, offset may be Z, +HH, +HHMM or +HH:MM, no offset means UTC.
+     * @return timestamp holding UTC wall time or null
+     */
+    public static Timestamp parseMongoTimestamp(byte[] bytes, int start, int length) {
+        int end = start + length;
+        if (length < 19 || bytes[start + 4] != '-' || bytes[start + 7] != '-'
+                || (bytes[start + 10] != 'T' && bytes[start + 10] != ' ')
+                || bytes[start + 13] != ':' || bytes[start + 16] != ':')
+            return null;
+
+        int year = parseDigits(bytes, start, 4);
+        int month = parseDigits(bytes, start + 5, 2);
+        int day = parseDigits(bytes, start + 8, 2);
+        int hour = parseDigits(bytes, start + 11, 2);
+        int minute = parseDigits(bytes, start + 14, 2);
+        int second = parseDigits(bytes, start + 17, 2);
+        if ((year | month | day | hour | minute | second) < 0)
+            return null;
+
+        int position = start + 19;
+        int nanos = 0;
+        if (position < end && bytes[position] == '.') {
+            int scale = 100000000;
+            for (position++; position < end && isDigit(bytes[position]); position++) {
+                if (scale == 0)
+                    return null;
+                nanos += (bytes[position] - '0') * scale;
+                scale /= 10;
+            }
+        }
+
+        int offsetMinutes = 0;
+        if (position < end) {
+            byte sign = bytes[position];
+            if (sign == 'Z') {
+                position++;
+            } else if (sign == '+' || sign == '-') {
+                int offsetHours = position + 3 <= end ? parseDigits(bytes, position + 1, 2) : -1;
+                if (offsetHours < 0)
+                    return null;
+                position += 3;
+                if (position < end && bytes[position] == ':')
+                    position++;
+                int offsetRemainder = 0;
+                if (position + 2 <= end) {
+                    offsetRemainder = parseDigits(bytes, position, 2);
+                    if (offsetRemainder < 0)
+                        return null;
+                    position += 2;
+                }
+                offsetMinutes = (offsetHours * 60 + offsetRemainder) * (sign == '-' ? -1 : 1);
+            } else {
+                return null;
+            }
+        }
+        if (position != end)
+            return null;
+
+        try {
+            return Timestamp.valueOf(
+                    LocalDateTime.of(year, month, day, hour, minute, second, nanos).minusMinutes(offsetMinutes));
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return days since epoch of yyyyMMdd date held by number e.g. 20170102 or INVALID_DATE
+     */
+    public static long parseCompactDate(long value) {
+        if (value < 10000101 || value > 99991231)
+            return INVALID_DATE;
+        try {
+            return LocalDate.of((int) (value / 10000), (int) (value / 100 % 100), (int) (value % 100)).toEpochDay();
+        } catch (DateTimeException e) {
+            return INVALID_DATE;
+        }
+    }
+
+    /**
+     * @return days since epoch of yyyyMMdd date held by string e.g. "20170102" or INVALID_DATE
+     */
+    public static long parseCompactDate(byte[] bytes, int start, int length) {
+        if (length != 8)
+            return INVALID_DATE;
+        int year = parseDigits(bytes, start, 4);
+        int monthAndDay = parseDigits(bytes, start + 4, 4);
+        if ((year | monthAndDay) < 0)
+            return INVALID_DATE;
+        return parseCompactDate(year * 10000L + monthAndDay);
+    }
+
+    /**
+     * FALSE, NO, N and 0 in any case are false, any other value is true
+     */
+    public static boolean parseBoolean(byte[] bytes, int start, int length) {
+        for (byte[] falseValue : FALSE_VALUES) {
+            if (equalsIgnoreCase(falseValue, bytes, start, length))
+                return false;
+        }
+        return true;
+    }
+
+    private static boolean equalsIgnoreCase(byte[] upperCase, byte[] bytes, int start, int length) {
+        if (upperCase.length != length)
+            return false;
+        for (int i = 0; i < length; i++) {
+            byte b = bytes[start + i];
+            if (b >= 'a' && b <= 'z')
+                b -= 'a' - 'A';
+            if (b != upperCase[i])
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return value of count decimal digits or -1 when any of them isn't a digit
+     */
+    private static int parseDigits(byte[] bytes, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            if (!isDigit(bytes[i]))
+                return -1;
+            value = value * 10 + bytes[i] - '0';
+        }
+        return value;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+}
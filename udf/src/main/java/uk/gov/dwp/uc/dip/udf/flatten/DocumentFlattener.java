@@ -0,0 +1,94 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Flattens JSON documents into rows of the spec outputs. The document is parsed once reading only the parts
+ * the spec selects, then explodes are iterated as nested loops. Explode of missing or empty array or map
+ * iterates once with no element, as LATERAL VIEW OUTER does.
+ */
+public class DocumentFlattener {
+    private final FlattenSpec spec;
+    private final JsonFactory factory = new JsonFactory();
+    // current element of every explode
+    private final Object[] elements;
+    private final String[] row;
+
+    public interface RowConsumer {
+        /**
+         * @param values texts of outputs, null when there is no value, the array is reused between rows
+         */
+        void accept(String[] values) throws HiveException;
+    }
+
+    public DocumentFlattener(FlattenSpec spec) {
+        this.spec = spec;
+        this.elements = new Object[spec.explodes.size()];
+        this.row = new String[spec.outputs.size()];
+    }
+
+    /**
+     * Gives no rows for empty text
+     * @throws org.codehaus.jackson.JsonProcessingException when the text isn't JSON object
+     */
+    public void flatten(byte[] bytes, int offset, int length, RowConsumer consumer) throws IOException, HiveException {
+        Object document;
+        try (JsonParser parser = factory.createJsonParser(bytes, offset, length)) {
+            JsonToken token = parser.nextToken();
+            if (token == null)
+                return;
+            if (token != JsonToken.START_OBJECT)
+                throw new JsonParseException("jive_flatten expects JSON object", parser.getCurrentLocation());
+            document = spec.selection.readStructure(parser, factory);
+        }
+        emit(0, document, consumer);
+    }
+
+    private void emit(int explode, Object document, RowConsumer consumer) throws HiveException {
+        if (explode == elements.length) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = toText(spec.outputs.get(i).resolve(document, elements));
+            }
+            consumer.accept(row);
+            return;
+        }
+
+        PathReference reference = spec.explodes.get(explode);
+        Collection<?> items = getItems(reference, JsonSubtree.navigated(reference.resolve(document, elements)));
+        if (items == null || items.isEmpty()) {
+            elements[explode] = null;
+            emit(explode + 1, document, consumer);
+            return;
+        }
+        for (Object item : items) {
+            elements[explode] = item;
+            emit(explode + 1, document, consumer);
+        }
+    }
+
+    /**
+     * @return entries of map explode or elements of array explode, null when the value isn't such collection
+     */
+    private static Collection<?> getItems(PathReference explode, Object value) {
+        if (explode.map)
+            return value instanceof Map ? ((Map<?, ?>) value).entrySet() : null;
+        return value instanceof List ? (List<?>) value : null;
+    }
+
+    private static String toText(Object value) {
+        if (value instanceof String)
+            return (String) value;
+        if (value instanceof JsonSubtree)
+            return ((JsonSubtree) value).json;
+        return null;
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiled spec of jive_flatten: JSON paths of output columns with their HIVE types, separated by ';'
+ * e.g. "parentId int;children[*].name string;_removed.children[*].name string".
+ * Every prefix of a path ending with [*], [mk] or [mv] is an explode, [mk] and [mv] of the same map share one.
+ * Explodes are iterated in order of their first use, as generated LATERAL VIEWs would be, so outputs under
+ * different explodes e.g. live and _removed version of an array give their cross product. [n] picks the element
+ * of an array without exploding it.
+ */
+public class FlattenSpec {
+    final List<PathReference> explodes = new ArrayList<>();
+    final List<PathReference> outputs = new ArrayList<>();
+    final Selection selection = new Selection();
+    private final List<String> types = new ArrayList<>();
+    // explodes by their path prefix
+    private final Map<String, Integer> explodeIds = new HashMap<>();
+
+    private FlattenSpec() {
+    }
+
+    /**
+     * @throws IllegalArgumentException when the spec isn't valid
+     */
+    public static FlattenSpec parse(String spec) {
+        FlattenSpec result = new FlattenSpec();
+        for (String output : spec.split(";")) {
+            output = output.trim();
+            if (output.isEmpty())
+                continue;
+            int space = output.indexOf(' ');
+            if (space < 0)
+                throw new IllegalArgumentException("jive_flatten output without type: " + output);
+            result.addOutput(output.substring(0, space), output.substring(space + 1).trim());
+        }
+        if (result.outputs.isEmpty())
+            throw new IllegalArgumentException("jive_flatten spec has no outputs");
+        return result;
+    }
+
+    /**
+     * @return HIVE types of outputs
+     */
+    public List<String> getTypes() {
+        return types;
+    }
+
+    private void addOutput(String path, String type) {
+        int parent = -1;
+        int entryPart = PathReference.NO_ENTRY_PART;
+        List<PathSegment> segments = new ArrayList<>();
+        Selection outputSelection = selection;
+        String prefix = "";
+
+        for (String segment : path.split("\\.")) {
+            int bracket = segment.indexOf('[');
+            if (bracket >= 0 && !segment.endsWith("]"))
+                throw new IllegalArgumentException("jive_flatten path with malformed index: " + path);
+            String key = (bracket < 0 ? segment : segment.substring(0, bracket)).toLowerCase();
+            String index = bracket < 0 ? null : segment.substring(bracket + 1, segment.length() - 1);
+            prefix += (prefix.isEmpty() ? "" : ".") + key;
+            outputSelection = outputSelection.field(key);
+
+            if (index == null) {
+                segments.add(new PathSegment(key, -1));
+                continue;
+            }
+            if (index.matches("\\d+")) {
+                segments.add(new PathSegment(key, Integer.parseInt(index)));
+                prefix += segment.substring(bracket);
+                outputSelection = outputSelection.elements();
+                continue;
+            }
+
+            boolean map = index.equals("mk") || index.equals("mv");
+            if (!map && !index.equals("*"))
+                throw new IllegalArgumentException("jive_flatten path with unknown index: " + path);
+            segments.add(new PathSegment(key, -1));
+            prefix += map ? "[m]" : "[*]";
+            Integer explode = explodeIds.get(prefix);
+            if (explode == null) {
+                explode = explodes.size();
+                explodes.add(new PathReference(parent, entryPart, segments, map));
+                explodeIds.put(prefix, explode);
+            }
+            parent = explode;
+            entryPart = !map ? PathReference.NO_ENTRY_PART
+                    : index.equals("mk") ? PathReference.ENTRY_KEY : PathReference.ENTRY_VALUE;
+            segments = new ArrayList<>();
+            outputSelection = map ? outputSelection.entries() : outputSelection.elements();
+        }
+
+        // map keys are read with their map, there is no value to read for them
+        if (entryPart != PathReference.ENTRY_KEY || !segments.isEmpty())
+            outputSelection.selectWhole();
+        outputs.add(new PathReference(parent, entryPart, segments, false));
+        types.add(type);
+    }
+}
@@ -0,0 +1,22 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+/**
+ * Object or array flattened as its JSON text. When paths also continue below it, it keeps the navigable value
+ * of the subtree read for them.
+ */
+class JsonSubtree {
+    final String json;
+    final Object value;
+
+    JsonSubtree(String json, Object value) {
+        this.json = json;
+        this.value = value;
+    }
+
+    /**
+     * @return value to navigate, subtree is replaced by its navigable value
+     */
+    static Object navigated(Object value) {
+        return value instanceof JsonSubtree ? ((JsonSubtree) value).value : value;
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Path of output or explode relative to the current element of its parent explode or to the document.
+ */
+class PathReference {
+    final static int NO_ENTRY_PART = 0;
+    final static int ENTRY_KEY = 1;
+    final static int ENTRY_VALUE = 2;
+
+    // index of parent explode or -1 for the document
+    final int parent;
+    // key or value of the current entry when parent explodes a map
+    final int entryPart;
+    final List<PathSegment> segments;
+    // explodes only: explode of map entries instead of array elements
+    final boolean map;
+
+    PathReference(int parent, int entryPart, List<PathSegment> segments, boolean map) {
+        this.parent = parent;
+        this.entryPart = entryPart;
+        this.segments = segments;
+        this.map = map;
+    }
+
+    /**
+     * @param elements current elements of explodes, map entries for map explodes
+     * @return referenced value or null when there is no such value
+     */
+    Object resolve(Object document, Object[] elements) {
+        Object value = parent < 0 ? document : elements[parent];
+        if (entryPart != NO_ENTRY_PART) {
+            if (!(value instanceof Map.Entry))
+                return null;
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) value;
+            value = entryPart == ENTRY_KEY ? entry.getKey() : entry.getValue();
+        }
+        for (PathSegment segment : segments) {
+            if (value == null)
+                return null;
+            value = segment.get(value);
+        }
+        return value;
+    }
+}
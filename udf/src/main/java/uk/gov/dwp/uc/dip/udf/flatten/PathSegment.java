@@ -0,0 +1,48 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Key of JSON path segment, optionally followed by [n] index.
+ */
+class PathSegment {
+    // lower case key, as keys are matched ignoring case
+    final String key;
+    // index of the array element or -1 when the segment isn't indexed
+    final int index;
+
+    PathSegment(String key, int index) {
+        this.key = key;
+        this.index = index;
+    }
+
+    /**
+     * @return value of the key in the object, element at the index when indexed or null when there is no such value
+     */
+    Object get(Object value) {
+        value = get(JsonSubtree.navigated(value), key);
+        if (index < 0 || value == null)
+            return value;
+        value = JsonSubtree.navigated(value);
+        if (!(value instanceof List))
+            return null;
+        List<?> elements = (List<?>) value;
+        return index < elements.size() ? elements.get(index) : null;
+    }
+
+    private static Object get(Object value, String key) {
+        if (!(value instanceof Map))
+            return null;
+        Map<?, ?> object = (Map<?, ?>) value;
+        Object field = object.get(key);
+        if (field != null || object.containsKey(key))
+            return field;
+        // maps of map explodes keep keys as spelled in the document
+        for (Map.Entry<?, ?> entry : object.entrySet()) {
+            if (key.equalsIgnoreCase((String) entry.getKey()))
+                return entry.getValue();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,133 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Part of JSON value the spec reads. Document is read in one pass: keys out of the selection are skipped with
+ * their subtree, scalars become strings, objects become maps of selected keys and arrays lists of elements.
+ * Objects and arrays flattened as a whole become their JSON text.
+ */
+class Selection {
+    // selected keys of an object, by lower case key
+    private Map<String, Selection> fields;
+    // selection of array elements
+    private Selection elements;
+    // selection of map entry values, all keys of a map are read
+    private Selection entries;
+    // value is flattened as a whole
+    private boolean whole;
+
+    Selection field(String key) {
+        if (fields == null)
+            fields = new HashMap<>();
+        return fields.computeIfAbsent(key, k -> new Selection());
+    }
+
+    Selection elements() {
+        if (elements == null)
+            elements = new Selection();
+        return elements;
+    }
+
+    Selection entries() {
+        if (entries == null)
+            entries = new Selection();
+        return entries;
+    }
+
+    void selectWhole() {
+        whole = true;
+    }
+
+    /**
+     * Reads value of the current token, parser is left on its last token
+     */
+    Object read(JsonParser parser, JsonFactory factory) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+            case START_ARRAY:
+                if (!whole)
+                    return readStructure(parser, factory);
+                String json = getStructureText(parser, factory);
+                if (fields == null && elements == null && entries == null)
+                    return new JsonSubtree(json, null);
+                // rare value flattened as a whole with paths below it is read again for them
+                try (JsonParser subtreeParser = factory.createJsonParser(json)) {
+                    subtreeParser.nextToken();
+                    return new JsonSubtree(json, readStructure(subtreeParser, factory));
+                }
+            default:
+                return parser.getText();
+        }
+    }
+
+    /**
+     * Reads selected part of object or array of the current token
+     */
+    Object readStructure(JsonParser parser, JsonFactory factory) throws IOException {
+        if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
+            if (elements == null) {
+                parser.skipChildren();
+                return null;
+            }
+            List<Object> values = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                values.add(elements.read(parser, factory));
+            }
+            return values;
+        }
+
+        if (entries != null) {
+            Map<String, Object> values = new LinkedHashMap<>();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String key = parser.getCurrentName();
+                parser.nextToken();
+                values.put(key, entries.read(parser, factory));
+            }
+            return values;
+        }
+
+        if (fields == null) {
+            parser.skipChildren();
+            return null;
+        }
+        Map<String, Object> values = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            Selection field = fields.get(key);
+            if (field == null) {
+                key = key.toLowerCase();
+                field = fields.get(key);
+            }
+            parser.nextToken();
+            if (field == null) {
+                parser.skipChildren();
+                continue;
+            }
+            values.put(key, field.read(parser, factory));
+        }
+        return values;
+    }
+
+    private static String getStructureText(JsonParser parser, JsonFactory factory) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = factory.createJsonGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+}
@@ -0,0 +1,122 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde.serdeConstants;
+import org.apache.hadoop.hive.serde2.AbstractSerDe;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.SerDeStats;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonProcessingException;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Read only SerDe of JSON documents, one per line, built on Jackson streaming parser.
+ * Only columns projected by the query are decoded, keys of other columns are skipped with their whole subtree
+ * without building strings or objects. Decoded values are written straight into writables reused between rows.
+ * Keys are matched to columns ignoring case, as by org.openx.data.jsonserde.JsonSerDe, so source tables can
+ * switch between both SerDes without changing their schema.
+ *
+ * Table property ignore.malformed.json=true gives row of nulls instead of failing on malformed document.
+ */
+public class JiveJsonSerDe extends AbstractSerDe {
+    public final static String IGNORE_MALFORMED_JSON = "ignore.malformed.json";
+
+    private final JsonFactory factory = new JsonFactory();
+    private ObjectInspector rowObjectInspector;
+    private StructValueReader rowReader;
+    private boolean ignoreMalformedJson;
+    private final SerDeStats stats = new SerDeStats();
+
+    @Override
+    public void initialize(Configuration configuration, Properties tableProperties) throws SerDeException {
+        String columnNames = tableProperties.getProperty(serdeConstants.LIST_COLUMNS);
+        String columnTypes = tableProperties.getProperty(serdeConstants.LIST_COLUMN_TYPES);
+        if (columnNames == null || columnTypes == null)
+            throw new SerDeException("JiveJsonSerDe requires table columns");
+
+        List<String> names = columnNames.isEmpty() ? Arrays.<String>asList() : Arrays.asList(columnNames.split(","));
+        List<TypeInfo> types = TypeInfoUtils.getTypeInfosFromTypeString(columnTypes);
+        if (names.size() != types.size())
+            throw new SerDeException(String.format("JiveJsonSerDe got %d column names and %d column types",
+                    names.size(), types.size()));
+
+        StructTypeInfo rowTypeInfo = (StructTypeInfo) TypeInfoFactory.getStructTypeInfo(names, types);
+        rowObjectInspector = TypeInfoUtils.getStandardWritableObjectInspectorFromTypeInfo(rowTypeInfo);
+        rowReader = new StructValueReader(rowTypeInfo, getProjectedColumns(configuration, names.size()), factory, true);
+        ignoreMalformedJson = Boolean.parseBoolean(tableProperties.getProperty(IGNORE_MALFORMED_JSON, "false"));
+    }
+
+    /**
+     * @return columns read by the query or null when all of them are read
+     */
+    private static boolean[] getProjectedColumns(Configuration configuration, int columns) {
+        if (configuration == null || ColumnProjectionUtils.isReadAllColumns(configuration))
+            return null;
+        boolean[] projected = new boolean[columns];
+        for (Integer id : ColumnProjectionUtils.getReadColumnIDs(configuration)) {
+            // ids of table with more columns e.g. partition columns aren't columns of the document
+            if (id >= 0 && id < columns)
+                projected[id] = true;
+        }
+        return projected;
+    }
+
+    @Override
+    public Object deserialize(Writable blob) throws SerDeException {
+        Text text = (Text) blob;
+        stats.setRawDataSize(text.getLength());
+        List<Object> row = rowReader.newValues();
+        try (JsonParser parser = factory.createJsonParser(text.getBytes(), 0, text.getLength())) {
+            JsonToken token = parser.nextToken();
+            if (token == null)
+                return row;
+            if (token != JsonToken.START_OBJECT) {
+                if (!ignoreMalformedJson)
+                    throw new SerDeException("JiveJsonSerDe expects JSON object per line: " + text);
+                return row;
+            }
+            rowReader.readFields(parser, row);
+        } catch (JsonProcessingException e) {
+            if (!ignoreMalformedJson)
+                throw new SerDeException("Malformed JSON: " + text, e);
+            return rowReader.newValues();
+        } catch (IOException e) {
+            throw new SerDeException(e);
+        }
+        return row;
+    }
+
+    @Override
+    public ObjectInspector getObjectInspector() throws SerDeException {
+        return rowObjectInspector;
+    }
+
+    @Override
+    public Class<? extends Writable> getSerializedClass() {
+        return Text.class;
+    }
+
+    @Override
+    public Writable serialize(Object obj, ObjectInspector objInspector) throws SerDeException {
+        throw new SerDeException("JiveJsonSerDe is read only, tables using it can't be written");
+    }
+
+    @Override
+    public SerDeStats getSerDeStats() {
+        return stats;
+    }
+}
@@ -0,0 +1,44 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+
+import java.io.IOException;
+
+/**
+ * Decodes JSON value the parser points at into the standard writable object of one HIVE type.
+ * Values which don't fit the type are skipped and give null.
+ */
+abstract class JsonValueReader {
+
+    /**
+     * @param parser parser pointing at the first token of the value, left at its last token
+     * @return writable object, list, map or null
+     */
+    abstract Object read(JsonParser parser) throws IOException;
+
+    /**
+     * @param reuse when set, reader returns the same object for every value so it may only be used for a value
+     *              appearing once per row, values of lists and maps always get new objects
+     */
+    static JsonValueReader create(TypeInfo typeInfo, JsonFactory factory, boolean reuse) throws SerDeException {
+        switch (typeInfo.getCategory()) {
+            case PRIMITIVE:
+                return new PrimitiveValueReader((PrimitiveTypeInfo) typeInfo, factory, reuse);
+            case STRUCT:
+                return new StructValueReader((StructTypeInfo) typeInfo, null, factory, reuse);
+            case LIST:
+                return new ListValueReader((ListTypeInfo) typeInfo, factory);
+            case MAP:
+                return new MapValueReader((MapTypeInfo) typeInfo, factory);
+            default:
+                throw new SerDeException("JiveJsonSerDe does not support type " + typeInfo.getTypeName());
+        }
+    }
+}
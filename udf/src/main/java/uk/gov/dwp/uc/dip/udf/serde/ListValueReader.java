@@ -0,0 +1,35 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Decodes JSON array into list of element values
+ */
+class ListValueReader extends JsonValueReader {
+    private final JsonValueReader elementReader;
+
+    ListValueReader(ListTypeInfo typeInfo, JsonFactory factory) throws SerDeException {
+        elementReader = create(typeInfo.getListElementTypeInfo(), factory, false);
+    }
+
+    @Override
+    Object read(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_ARRAY) {
+            parser.skipChildren();
+            return null;
+        }
+        List<Object> elements = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            elements.add(elementReader.read(parser));
+        }
+        return elements;
+    }
+}
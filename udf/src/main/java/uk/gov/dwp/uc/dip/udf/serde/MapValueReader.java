@@ -0,0 +1,49 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.typeinfo.MapTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Decodes JSON object into map, keys are converted from their text so the map key has to be primitive.
+ * Keys which can't be converted are skipped with their values.
+ */
+class MapValueReader extends JsonValueReader {
+    private final PrimitiveValueReader keyReader;
+    private final JsonValueReader valueReader;
+
+    MapValueReader(MapTypeInfo typeInfo, JsonFactory factory) throws SerDeException {
+        TypeInfo keyTypeInfo = typeInfo.getMapKeyTypeInfo();
+        if (!(keyTypeInfo instanceof PrimitiveTypeInfo))
+            throw new SerDeException("JiveJsonSerDe does not support map key type " + keyTypeInfo.getTypeName());
+        keyReader = new PrimitiveValueReader((PrimitiveTypeInfo) keyTypeInfo, factory, false);
+        valueReader = create(typeInfo.getMapValueTypeInfo(), factory, false);
+    }
+
+    @Override
+    Object read(JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        Map<Object,Object> map = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            Object key = keyReader.fromText(parser.getCurrentName(), keyReader.newWritable());
+            parser.nextToken();
+            if (key == null) {
+                parser.skipChildren();
+            } else {
+                map.put(key, valueReader.read(parser));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,316 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.hive.common.type.HiveDecimal;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DateWritable;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.HiveCharWritable;
+import org.apache.hadoop.hive.serde2.io.HiveDecimalWritable;
+import org.apache.hadoop.hive.serde2.io.HiveVarcharWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector.PrimitiveCategory;
+import org.apache.hadoop.hive.serde2.typeinfo.BaseCharTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.DecimalTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.HiveDecimalUtils;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonGenerator;
+import org.codehaus.jackson.JsonParseException;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.sql.Date;
+import java.sql.Timestamp;
+
+/**
+ * Decodes scalar into writable of primitive HIVE type. Strings are encoded from parser's character buffer
+ * straight into Text, numbers are read without going through their text unless the column is a string.
+ * Strings holding numbers, booleans, dates and timestamps are converted the way HIVE casts them,
+ * objects and arrays read into string column give their JSON text.
+ * Its text conversions are shared by jive_flatten which converts values it flattened the same way.
+ */
+public class PrimitiveValueReader extends JsonValueReader {
+    private final PrimitiveTypeInfo typeInfo;
+    private final PrimitiveCategory category;
+    private final JsonFactory factory;
+    private final Writable reused;
+    // UTF-8 encoding buffer of strings
+    private byte[] bytes = new byte[64];
+
+    public PrimitiveValueReader(PrimitiveTypeInfo typeInfo, JsonFactory factory, boolean reuse) throws SerDeException {
+        this.typeInfo = typeInfo;
+        this.category = typeInfo.getPrimitiveCategory();
+        this.factory = factory;
+        Writable writable = newWritable();
+        if (writable == null)
+            throw new SerDeException("JiveJsonSerDe does not support type " + typeInfo.getTypeName());
+        this.reused = reuse ? writable : null;
+    }
+
+    @Override
+    Object read(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        switch (token) {
+            case VALUE_NULL:
+                return null;
+            case START_OBJECT:
+            case START_ARRAY:
+                if (category == PrimitiveCategory.STRING)
+                    return fromText(getStructureText(parser), writable());
+                parser.skipChildren();
+                return null;
+            case VALUE_NUMBER_INT:
+            case VALUE_NUMBER_FLOAT:
+                return fromNumber(parser);
+            case VALUE_TRUE:
+            case VALUE_FALSE:
+                if (category == PrimitiveCategory.BOOLEAN) {
+                    BooleanWritable writable = (BooleanWritable) writable();
+                    writable.set(token == JsonToken.VALUE_TRUE);
+                    return writable;
+                }
+                return fromScalarText(parser);
+            default:
+                return fromScalarText(parser);
+        }
+    }
+
+    /**
+     * Converts text of map key or string value into writable of the type
+     * @return target or null when text can't be converted
+     */
+    public Object fromText(String text, Writable target) {
+        try {
+            switch (category) {
+                case STRING:
+                    ((Text) target).set(text);
+                    return target;
+                case VARCHAR:
+                    ((HiveVarcharWritable) target).set(text, ((BaseCharTypeInfo) typeInfo).getLength());
+                    return target;
+                case CHAR:
+                    ((HiveCharWritable) target).set(text, ((BaseCharTypeInfo) typeInfo).getLength());
+                    return target;
+                case BOOLEAN:
+                    if ("true".equalsIgnoreCase(text.trim())) {
+                        ((BooleanWritable) target).set(true);
+                    } else if ("false".equalsIgnoreCase(text.trim())) {
+                        ((BooleanWritable) target).set(false);
+                    } else {
+                        return null;
+                    }
+                    return target;
+                case BYTE:
+                    ((ByteWritable) target).set(Byte.parseByte(text.trim()));
+                    return target;
+                case SHORT:
+                    ((ShortWritable) target).set(Short.parseShort(text.trim()));
+                    return target;
+                case INT:
+                    ((IntWritable) target).set(Integer.parseInt(text.trim()));
+                    return target;
+                case LONG:
+                    ((LongWritable) target).set(Long.parseLong(text.trim()));
+                    return target;
+                case FLOAT:
+                    ((FloatWritable) target).set(Float.parseFloat(text.trim()));
+                    return target;
+                case DOUBLE:
+                    ((DoubleWritable) target).set(Double.parseDouble(text.trim()));
+                    return target;
+                case DECIMAL:
+                    return setDecimal(HiveDecimal.create(text), target);
+                case DATE:
+                    Date date = parseDate(text.trim());
+                    if (date == null)
+                        return null;
+                    ((DateWritable) target).set(date);
+                    return target;
+                case TIMESTAMP:
+                    Timestamp timestamp = parseTimestamp(text.trim());
+                    if (timestamp == null)
+                        return null;
+                    ((TimestampWritable) target).set(timestamp);
+                    return target;
+                default:
+                    return null;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return new writable of the type or null when the type isn't supported
+     */
+    public Writable newWritable() {
+        switch (category) {
+            case STRING:
+                return new Text();
+            case VARCHAR:
+                return new HiveVarcharWritable();
+            case CHAR:
+                return new HiveCharWritable();
+            case BOOLEAN:
+                return new BooleanWritable();
+            case BYTE:
+                return new ByteWritable();
+            case SHORT:
+                return new ShortWritable();
+            case INT:
+                return new IntWritable();
+            case LONG:
+                return new LongWritable();
+            case FLOAT:
+                return new FloatWritable();
+            case DOUBLE:
+                return new DoubleWritable();
+            case DECIMAL:
+                return new HiveDecimalWritable();
+            case DATE:
+                return new DateWritable();
+            case TIMESTAMP:
+                return new TimestampWritable();
+            default:
+                return null;
+        }
+    }
+
+    private Writable writable() {
+        return reused != null ? reused : newWritable();
+    }
+
+    private Object fromScalarText(JsonParser parser) throws IOException {
+        if (category == PrimitiveCategory.STRING) {
+            Text text = (Text) writable();
+            setUTF8(text, parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+            return text;
+        }
+        return fromText(parser.getText(), writable());
+    }
+
+    private Object fromNumber(JsonParser parser) throws IOException {
+        Writable target = writable();
+        try {
+            switch (category) {
+                case BYTE:
+                    int byteValue = parser.getIntValue();
+                    if (byteValue != (byte) byteValue)
+                        return null;
+                    ((ByteWritable) target).set((byte) byteValue);
+                    return target;
+                case SHORT:
+                    int shortValue = parser.getIntValue();
+                    if (shortValue != (short) shortValue)
+                        return null;
+                    ((ShortWritable) target).set((short) shortValue);
+                    return target;
+                case INT:
+                    ((IntWritable) target).set(parser.getIntValue());
+                    return target;
+                case LONG:
+                    ((LongWritable) target).set(parser.getLongValue());
+                    return target;
+                case FLOAT:
+                    ((FloatWritable) target).set(parser.getFloatValue());
+                    return target;
+                case DOUBLE:
+                    ((DoubleWritable) target).set(parser.getDoubleValue());
+                    return target;
+                case DECIMAL:
+                    return setDecimal(HiveDecimal.create(parser.getDecimalValue()), target);
+                case TIMESTAMP:
+                    // number of seconds since epoch as HIVE casts it
+                    ((TimestampWritable) target).set(new Timestamp((long) (parser.getDoubleValue() * 1000)));
+                    return target;
+                default:
+                    return fromScalarText(parser);
+            }
+        } catch (JsonParseException e) {
+            // number out of range of the type
+            return null;
+        }
+    }
+
+    private Object setDecimal(HiveDecimal decimal, Writable target) {
+        decimal = HiveDecimalUtils.enforcePrecisionScale(decimal, (DecimalTypeInfo) typeInfo);
+        if (decimal == null)
+            return null;
+        ((HiveDecimalWritable) target).set(decimal);
+        return target;
+    }
+
+    private String getStructureText(JsonParser parser) throws IOException {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = factory.createJsonGenerator(writer)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Encodes characters into Text without creating String, unpaired surrogates become U+FFFD as in Text.set
+     */
+    private void setUTF8(Text text, char[] chars, int offset, int length) {
+        if (bytes.length < length * 3)
+            bytes = new byte[length * 3];
+        int position = 0;
+        int end = offset + length;
+        for (int i = offset; i < end; i++) {
+            int c = chars[i];
+            if (c < 0x80) {
+                bytes[position++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[position++] = (byte) (0xC0 | c >> 6);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate((char) c) && i + 1 < end
+                    && Character.isLowSurrogate(chars[i + 1])) {
+                c = Character.toCodePoint((char) c, chars[++i]);
+                bytes[position++] = (byte) (0xF0 | c >> 18);
+                bytes[position++] = (byte) (0x80 | c >> 12 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            } else {
+                if (Character.isSurrogate((char) c))
+                    c = 0xFFFD;
+                bytes[position++] = (byte) (0xE0 | c >> 12);
+                bytes[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                bytes[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        text.set(bytes, 0, position);
+    }
+
+    /**
+     * yyyy-MM-dd or date of timestamp as HIVE casts string to date
+     */
+    private static Date parseDate(String text) {
+        try {
+            return Date.valueOf(text);
+        } catch (IllegalArgumentException e) {
+            Timestamp timestamp = parseTimestamp(text);
+            return timestamp == null ? null : new Date(timestamp.getTime());
+        }
+    }
+
+    /**
+     * yyyy-MM-dd HH:mm:ss[.fffffffff] or yyyy-MM-dd as HIVE casts string to timestamp
+     */
+    private static Timestamp parseTimestamp(String text) {
+        try {
+            return Timestamp.valueOf(text.length() == 10 ? text + " 00:00:00" : text);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
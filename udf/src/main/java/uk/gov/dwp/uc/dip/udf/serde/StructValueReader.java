@@ -0,0 +1,96 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.typeinfo.StructTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.codehaus.jackson.JsonFactory;
+import org.codehaus.jackson.JsonParser;
+import org.codehaus.jackson.JsonToken;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Decodes JSON object into list of struct field values. Keys are matched to fields ignoring case,
+ * keys of fields which aren't read are skipped with their whole subtree without decoding it.
+ */
+class StructValueReader extends JsonValueReader {
+    // bounds cache of key spellings so objects used as maps with arbitrary keys can't grow it forever
+    private final static int MAX_CACHED_KEYS = 1024;
+    private final static Integer UNKNOWN_KEY = -1;
+
+    // field readers, null for fields which aren't read
+    private final JsonValueReader[] readers;
+    // pairs of <lower case field name, field index>
+    private final HashMap<String,Integer> fieldIndexes = new HashMap<>();
+    // pairs of <key as spelled in JSON, field index or UNKNOWN_KEY>, parser keeps keys canonical so lookup is cheap
+    private final HashMap<String,Integer> keyIndexes = new HashMap<>();
+    private final List<Object> reused;
+
+    /**
+     * @param projected fields which are read, null when all of them are
+     */
+    StructValueReader(StructTypeInfo typeInfo, boolean[] projected, JsonFactory factory, boolean reuse)
+            throws SerDeException {
+        List<String> names = typeInfo.getAllStructFieldNames();
+        List<TypeInfo> types = typeInfo.getAllStructFieldTypeInfos();
+        readers = new JsonValueReader[names.size()];
+        for (int i = 0; i < names.size(); i++) {
+            fieldIndexes.put(names.get(i).toLowerCase(), i);
+            if (projected == null || projected[i])
+                readers[i] = create(types.get(i), factory, reuse);
+        }
+        reused = reuse ? new ArrayList<>(Arrays.asList(new Object[readers.length])) : null;
+    }
+
+    @Override
+    Object read(JsonParser parser) throws IOException {
+        JsonToken token = parser.getCurrentToken();
+        if (token != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return null;
+        }
+        List<Object> values = newValues();
+        readFields(parser, values);
+        return values;
+    }
+
+    /**
+     * @return values of all fields set to null, reused when the reader reuses objects
+     */
+    List<Object> newValues() {
+        if (reused == null)
+            return new ArrayList<>(Arrays.asList(new Object[readers.length]));
+        for (int i = 0; i < readers.length; i++)
+            reused.set(i, null);
+        return reused;
+    }
+
+    /**
+     * Reads fields of the object parser points at into values, parser is left at the end of the object
+     */
+    void readFields(JsonParser parser, List<Object> values) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int index = getFieldIndex(parser.getCurrentName());
+            parser.nextToken();
+            if (index < 0 || readers[index] == null) {
+                parser.skipChildren();
+            } else {
+                values.set(index, readers[index].read(parser));
+            }
+        }
+    }
+
+    private int getFieldIndex(String key) {
+        Integer index = keyIndexes.get(key);
+        if (index == null) {
+            index = fieldIndexes.getOrDefault(key.toLowerCase(), UNKNOWN_KEY);
+            if (keyIndexes.size() < MAX_CACHED_KEYS)
+                keyIndexes.put(key, index);
+        }
+        return index;
+    }
+}
@@ -0,0 +1,79 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GenericUDTFFlattenTest {
+    private final static String SPEC = "parentId int;children[*].name string";
+
+    private static GenericUDTFFlatten initialize(List<String> names, List<ObjectInspector> inspectors,
+                                                 List<List<Object>> rows) throws HiveException {
+        GenericUDTFFlatten flatten = new GenericUDTFFlatten();
+        flatten.initialize(ObjectInspectorFactory.getStandardStructObjectInspector(names, inspectors));
+        flatten.setCollector(row -> rows.add(new ArrayList<>(Arrays.asList((Object[]) row))));
+        return flatten;
+    }
+
+    private static GenericUDTFFlatten create(List<List<Object>> rows, Boolean ignoreMalformed) throws HiveException {
+        List<String> names = new ArrayList<>(Arrays.asList("document", "spec"));
+        List<ObjectInspector> inspectors = new ArrayList<>(Arrays.asList(
+                PrimitiveObjectInspectorFactory.writableStringObjectInspector,
+                PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                        TypeInfoFactory.stringTypeInfo, new Text(SPEC))));
+        if (ignoreMalformed != null) {
+            names.add("ignoreMalformed");
+            inspectors.add(PrimitiveObjectInspectorFactory.getPrimitiveWritableConstantObjectInspector(
+                    TypeInfoFactory.booleanTypeInfo, new BooleanWritable(ignoreMalformed)));
+        }
+        return initialize(names, inspectors, rows);
+    }
+
+    private static void process(GenericUDTFFlatten flatten, String... documents) throws HiveException {
+        for (String document : documents) {
+            flatten.process(new Object[]{new Text(document), new Text(SPEC)});
+        }
+    }
+
+    @Test
+    public void documentFlattenedIntoRowsTest() throws HiveException {
+        List<List<Object>> rows = new ArrayList<>();
+
+        process(create(rows, null), "{\"parentId\":1,\"children\":[{\"name\":\"a\"},{\"name\":\"b\"}]}");
+
+        assertEquals(2, rows.size());
+        assertEquals("1", rows.get(0).get(0).toString());
+        assertEquals("b", rows.get(1).get(1).toString());
+    }
+
+    @Test(expected = HiveException.class)
+    public void malformedDocumentFailsTest() throws HiveException {
+        process(create(new ArrayList<>(), false), "{\"parentId\":1,\"children\":[{\"name\":\"a\"}");
+    }
+
+    @Test
+    public void malformedDocumentSkippedTest() throws HiveException {
+        List<List<Object>> rows = new ArrayList<>();
+
+        // truncated document gives neither rows nor partial rows of its elements
+        process(create(rows, true),
+                "{\"parentId\":1,\"children\":[{\"name\":\"a\"},{\"name\":",
+                "[1,2]",
+                "{\"parentId\":2,\"children\":[{\"name\":\"c\"}]}");
+
+        assertEquals(1, rows.size());
+        assertEquals("2", rows.get(0).get(0).toString());
+        assertEquals("c", rows.get(0).get(1).toString());
+    }
+}
@@ -0,0 +1,66 @@
+package uk.gov.dwp.uc.dip.udf;
+
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+
+import static org.junit.Assert.*;
+
+public class JiveConversionsTest {
+
+    private static Timestamp parseTimestamp(String value) {
+        byte[] bytes = ("xx" + value).getBytes();
+        return JiveConversions.parseMongoTimestamp(bytes, 2, bytes.length - 2);
+    }
+
+    private static long parseDate(String value) {
+        byte[] bytes = value.getBytes();
+        return JiveConversions.parseCompactDate(bytes, 0, bytes.length);
+    }
+
+    private static boolean parseBoolean(String value) {
+        byte[] bytes = value.getBytes();
+        return JiveConversions.parseBoolean(bytes, 0, bytes.length);
+    }
+
+    @Test
+    public void utcTimestampTest() {
+        assertEquals(Timestamp.valueOf("2016-10-24 05:45:26.911"), parseTimestamp("2016-10-24 05:45:26.911Z"));
+        assertEquals(Timestamp.valueOf("2016-10-24 05:45:26.911"), parseTimestamp("2016-10-24T05:45:26.911Z"));
+        assertEquals(Timestamp.valueOf("2016-10-24 05:45:26"), parseTimestamp("2016-10-24T05:45:26"));
+    }
+
+    @Test
+    public void timestampWithOffsetTest() {
+        assertEquals(Timestamp.valueOf("2016-10-24 04:45:26.911"), parseTimestamp("2016-10-24T05:45:26.911+0100"));
+        assertEquals(Timestamp.valueOf("2016-10-24 10:15:26.911"), parseTimestamp("2016-10-24T05:45:26.911-04:30"));
+        assertEquals(Timestamp.valueOf("2016-10-23 23:45:26.911"), parseTimestamp("2016-10-24T05:45:26.911+06"));
+    }
+
+    @Test
+    public void invalidTimestampTest() {
+        assertNull(parseTimestamp("2016-13-24T05:45:26.911Z"));
+        assertNull(parseTimestamp("2016-10-24T05:45:26.911X"));
+        assertNull(parseTimestamp("2016-10-24"));
+        assertNull(parseTimestamp("not a date at all!!"));
+    }
+
+    @Test
+    public void compactDateTest() {
+        long days = LocalDate.of(2017, 1, 2).toEpochDay();
+        assertEquals(days, JiveConversions.parseCompactDate(20170102));
+        assertEquals(days, parseDate("20170102"));
+        assertEquals(JiveConversions.INVALID_DATE, JiveConversions.parseCompactDate(20170230));
+        assertEquals(JiveConversions.INVALID_DATE, parseDate("2017010"));
+        assertEquals(JiveConversions.INVALID_DATE, parseDate("2017-1-2"));
+    }
+
+    @Test
+    public void booleanTest() {
+        for (String value : new String[]{"FALSE", "false", "No", "n", "0"})
+            assertFalse(value, parseBoolean(value));
+        for (String value : new String[]{"TRUE", "yes", "1", "", "nope"})
+            assertTrue(value, parseBoolean(value));
+    }
+}
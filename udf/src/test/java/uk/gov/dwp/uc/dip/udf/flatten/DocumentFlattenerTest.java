@@ -0,0 +1,100 @@
+package uk.gov.dwp.uc.dip.udf.flatten;
+
+import org.codehaus.jackson.JsonProcessingException;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DocumentFlattenerTest {
+    private final static String DOCUMENT = "{\"parentId\":\"1\",\"Name\":\"one\"," +
+            "\"unmapped\":{\"a\":[1,2,{\"b\":3}]}," +
+            "\"children\":[{\"name\":\"a\",\"age\":10,\"toys\":[\"x\",\"y\"]},{\"name\":\"b\"}]," +
+            "\"counts\":{\"k1\":5,\"k2\":6}," +
+            "\"details\":{\"nested\":[1,true],\"code\":\"c\"}," +
+            "\"_removed\":{\"children\":[{\"name\":\"r\"}]}}";
+
+    private static List<List<String>> flatten(String spec, String document) throws Exception {
+        List<List<String>> rows = new ArrayList<>();
+        byte[] bytes = document.getBytes(StandardCharsets.UTF_8);
+        new DocumentFlattener(FlattenSpec.parse(spec)).flatten(bytes, 0, bytes.length,
+                values -> rows.add(new ArrayList<>(Arrays.asList(values))));
+        return rows;
+    }
+
+    @Test
+    public void topLevelFieldsTest() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("1", "one", null)),
+                flatten("parentId int;name string;missing string", DOCUMENT));
+    }
+
+    @Test
+    public void arrayExplodedIntoRowsTest() throws Exception {
+        assertEquals(Arrays.asList(
+                Arrays.asList("1", "a", "10"),
+                Arrays.asList("1", "b", null)),
+                flatten("parentId int;children[*].name string;children[*].age int", DOCUMENT));
+    }
+
+    @Test
+    public void nestedArraysExplodedTest() throws Exception {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "x"),
+                Arrays.asList("a", "y"),
+                Arrays.asList("b", null)),
+                flatten("children[*].name string;children[*].toys[*] string", DOCUMENT));
+    }
+
+    @Test
+    public void liveAndRemovedArraysCrossedTest() throws Exception {
+        assertEquals(Arrays.asList(
+                Arrays.asList("a", "r"),
+                Arrays.asList("b", "r")),
+                flatten("children[*].name string;_removed.children[*].name string", DOCUMENT));
+    }
+
+    @Test
+    public void mapKeysAndValuesExplodedTogetherTest() throws Exception {
+        assertEquals(Arrays.asList(
+                Arrays.asList("k1", "5"),
+                Arrays.asList("k2", "6")),
+                flatten("counts[mk] string;counts[mv] int", DOCUMENT));
+    }
+
+    @Test
+    public void indexedElementNotExplodedTest() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("b", "true")),
+                flatten("children[1].name string;details.nested[1] boolean", DOCUMENT));
+    }
+
+    @Test
+    public void objectFlattenedAsJsonTextTest() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("{\"nested\":[1,true],\"code\":\"c\"}", "c")),
+                flatten("details string;details.code string", DOCUMENT));
+    }
+
+    @Test
+    public void missingArrayGivesOneRowTest() throws Exception {
+        assertEquals(Arrays.asList(Arrays.asList("1", null)),
+                flatten("parentId int;pets[*].name string", DOCUMENT));
+    }
+
+    @Test
+    public void emptyTextGivesNoRowsTest() throws Exception {
+        assertTrue(flatten("parentId int", "").isEmpty());
+    }
+
+    @Test(expected = JsonProcessingException.class)
+    public void malformedJsonFailsTest() throws Exception {
+        flatten("parentId int", "{\"parentId\":FALSE}");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void outputWithoutTypeFailsTest() {
+        FlattenSpec.parse("parentId");
+    }
+}
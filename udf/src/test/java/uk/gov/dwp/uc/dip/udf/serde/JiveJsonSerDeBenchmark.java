@@ -0,0 +1,112 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.Deserializer;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.io.Text;
+import org.openx.data.jsonserde.JsonSerDe;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Compares throughput of JiveJsonSerDe and openx JsonSerDe deserializing sample agent documents of agent.json
+ * into source table generated for agent-core_agent.csv mapping, reading either all its columns or only key
+ * and version columns as deduplication does. Run with number of rows as optional argument:
+ * java -cp <test classpath> uk.gov.dwp.uc.dip.udf.serde.JiveJsonSerDeBenchmark 1000000
+ */
+public class JiveJsonSerDeBenchmark {
+    private final static String SAMPLE_DOCUMENTS = "agent.json";
+    // columns of the document, followed in the table by _removed struct of the same fields
+    private final static String[] DOCUMENT_COLUMNS = {"_id", "firstname", "lastname", "sortname",
+            "_removeddatetime", "_lastmodifieddatetime", "createddatetime", "_version"};
+    private final static String[] DOCUMENT_TYPES = {"struct<agentid:string>", "string", "string", "string",
+            "struct<d_date:string>", "struct<d_date:string>", "struct<d_date:string>", "string"};
+    private final static List<Integer> KEY_COLUMNS = Arrays.asList(0, 7);
+    private final static int DEFAULT_ROWS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROWS;
+        List<Text> documents = readDocuments();
+
+        // first round warms JIT up
+        for (int round = 0; round < 2; round++) {
+            System.out.println(round == 0 ? "warm up" : "measured");
+            run("openx", new JsonSerDe(), null, documents, rows);
+            run("jive", new JiveJsonSerDe(), null, documents, rows);
+            run("openx", new JsonSerDe(), KEY_COLUMNS, documents, rows);
+            run("jive", new JiveJsonSerDe(), KEY_COLUMNS, documents, rows);
+        }
+    }
+
+    private static List<Text> readDocuments() throws Exception {
+        List<Text> documents = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                JiveJsonSerDeBenchmark.class.getClassLoader().getResourceAsStream(SAMPLE_DOCUMENTS),
+                StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                documents.add(new Text(line));
+            }
+        }
+        return documents;
+    }
+
+    /**
+     * Deserializes rows and copies values of read columns as HIVE operators reading them would
+     * @param projection ids of read columns, null when all columns are read
+     */
+    private static void run(String serDeName, Deserializer serDe, List<Integer> projection, List<Text> documents,
+                            int rows) throws Exception {
+        Configuration configuration = new Configuration(false);
+        if (projection != null)
+            ColumnProjectionUtils.appendReadColumns(configuration, projection);
+        Properties properties = new Properties();
+        properties.setProperty("columns", String.join(",", DOCUMENT_COLUMNS) + ",_removed");
+        properties.setProperty("columns.types", String.format("%s:struct<%s>",
+                String.join(":", DOCUMENT_TYPES), getRemovedFields()));
+        serDe.initialize(configuration, properties);
+
+        StructObjectInspector inspector = (StructObjectInspector) serDe.getObjectInspector();
+        List<StructField> fields = new ArrayList<>(inspector.getAllStructFieldRefs());
+        List<StructField> readFields = new ArrayList<>();
+        for (int i = 0; i < fields.size(); i++) {
+            if (projection == null || projection.contains(i))
+                readFields.add(fields.get(i));
+        }
+
+        long values = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < rows; i++) {
+            Object row = serDe.deserialize(documents.get(i % documents.size()));
+            for (StructField field : readFields) {
+                if (ObjectInspectorUtils.copyToStandardObject(inspector.getStructFieldData(row, field),
+                        field.getFieldObjectInspector()) != null)
+                    values++;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        System.out.println(String.format("%-6s %-12s %,12d rows/s %,12d values", serDeName,
+                projection == null ? "all columns" : "key columns", rows * 1000000000L / elapsed, values));
+    }
+
+    /**
+     * @return fields of _removed struct, the same as document columns
+     */
+    private static String getRemovedFields() {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < DOCUMENT_COLUMNS.length; i++) {
+            fields.add(DOCUMENT_COLUMNS[i] + ":" + DOCUMENT_TYPES[i]);
+        }
+        return String.join(",", fields);
+    }
+}
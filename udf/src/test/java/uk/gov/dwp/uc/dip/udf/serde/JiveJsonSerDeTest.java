@@ -0,0 +1,96 @@
+package uk.gov.dwp.uc.dip.udf.serde;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.serde2.ColumnProjectionUtils;
+import org.apache.hadoop.hive.serde2.SerDeException;
+import org.apache.hadoop.hive.serde2.io.TimestampWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.Test;
+
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.Assert.*;
+
+public class JiveJsonSerDeTest {
+    private final static String DOCUMENT = "{\"parentId\":\"1\",\"NAME\":\"one\"," +
+            "\"unmapped\":{\"a\":[1,2,{\"b\":3}]}," +
+            "\"children\":[{\"name\":\"a\",\"age\":\"10\"},{\"name\":\"b\",\"age\":11,\"unmapped\":[1]}]," +
+            "\"counts\":{\"x\":5}," +
+            "\"details\":{\"nested\":[1,true]}," +
+            "\"created\":\"2017-01-02 03:04:05.5\"," +
+            "\"_removed\":{\"parentId\":7,\"name\":null}}";
+
+    private static JiveJsonSerDe createSerDe(Configuration configuration, boolean ignoreMalformedJson)
+            throws SerDeException {
+        Properties properties = new Properties();
+        properties.setProperty("columns", "parentid,name,children,counts,details,created,_removed");
+        properties.setProperty("columns.types", "int:string:array<struct<name:string,age:int>>" +
+                ":map<string,bigint>:string:timestamp:struct<parentid:int,name:string>");
+        properties.setProperty(JiveJsonSerDe.IGNORE_MALFORMED_JSON, String.valueOf(ignoreMalformedJson));
+        JiveJsonSerDe serDe = new JiveJsonSerDe();
+        serDe.initialize(configuration, properties);
+        return serDe;
+    }
+
+    private static List<?> deserialize(JiveJsonSerDe serDe, String document) throws SerDeException {
+        return (List<?>) serDe.deserialize(new Text(document));
+    }
+
+    @Test
+    public void allColumnsReadTest() throws SerDeException {
+        List<?> row = deserialize(createSerDe(null, false), DOCUMENT);
+
+        assertEquals(new IntWritable(1), row.get(0));
+        assertEquals(new Text("one"), row.get(1));
+        assertEquals(Arrays.asList(
+                Arrays.asList(new Text("a"), new IntWritable(10)),
+                Arrays.asList(new Text("b"), new IntWritable(11))), row.get(2));
+        assertEquals(new LongWritable(5), ((Map<?,?>) row.get(3)).get(new Text("x")));
+        assertEquals(new TimestampWritable(Timestamp.valueOf("2017-01-02 03:04:05.5")), row.get(5));
+        assertEquals(Arrays.asList(new IntWritable(7), null), row.get(6));
+    }
+
+    @Test
+    public void objectReadIntoStringColumnTest() throws SerDeException {
+        List<?> row = deserialize(createSerDe(null, false), DOCUMENT);
+
+        assertEquals(new Text("{\"nested\":[1,true]}"), row.get(4));
+    }
+
+    @Test
+    public void onlyProjectedColumnsReadTest() throws SerDeException {
+        Configuration configuration = new Configuration(false);
+        ColumnProjectionUtils.appendReadColumns(configuration, Arrays.asList(1, 6));
+
+        List<?> row = deserialize(createSerDe(configuration, false), DOCUMENT);
+
+        assertEquals(Arrays.asList(null, new Text("one"), null, null, null, null,
+                Arrays.asList(new IntWritable(7), null)), row);
+    }
+
+    @Test
+    public void missingAndMistypedValuesAreNullTest() throws SerDeException {
+        List<?> row = deserialize(createSerDe(null, false), "{\"parentId\":\"x\",\"children\":\"none\"}");
+
+        assertEquals(Collections.nCopies(7, null), row);
+    }
+
+    @Test(expected = SerDeException.class)
+    public void malformedJsonFailsTest() throws SerDeException {
+        deserialize(createSerDe(null, false), "{\"name\":FALSE}");
+    }
+
+    @Test
+    public void malformedJsonIgnoredTest() throws SerDeException {
+        List<?> row = deserialize(createSerDe(null, true), "{\"name\":FALSE}");
+
+        assertEquals(Collections.nCopies(7, null), row);
+    }
+}
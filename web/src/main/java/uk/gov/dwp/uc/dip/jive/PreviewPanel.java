@@ -11,6 +11,7 @@ import uk.gov.dwp.uc.dip.jive.hiverun.HiveResultsPanel;
 import uk.gov.dwp.uc.dip.jive.hiverun.StatementResult;
 import uk.gov.dwp.uc.dip.mappingreader.TechnicalMapping;
 import uk.gov.dwp.uc.dip.schemagenerator.SchemaGenerator;
+import uk.gov.dwp.uc.dip.schemagenerator.profile.ProfileGenerator;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -134,6 +135,9 @@ public class PreviewPanel extends Panel {
         log.debug("Change target table selection to " + targetTable);
 
         try{
+            if(loadProfile(statsGrid, databaseName, targetTable, hpe, container)){
+                return;
+            }
             SchemaGenerator schemaGenerator = new SchemaGenerator(mappingPath, null);
             String statsSQLTemplate = "describe formatted %s.%s";
             List<List<Object>> allStats = new ArrayList<>();
@@ -166,6 +170,32 @@ public class PreviewPanel extends Panel {
             NotificationUtils.displayError(e);
         }
     }
+
+    /***
+     * Loads the latest profile of the table from jive_profile, one query instead of describe per column
+     * @return false when the table was never profiled
+     */
+    boolean loadProfile(DataGrid statsGrid, String databaseName, String targetTable
+            , HiveProxyExecutor hpe, BeanItemContainer<StatementResult> container) {
+        String sql = String.format("show tables like '%s'", ProfileGenerator.PROFILE_TABLE);
+        List<List<Object>> tables = hpe.executeSingleStatement(sql, databaseName, container);
+        if(tables == null || tables.size() < 2) {
+            return false;
+        }
+        sql = String.format("SELECT p.column_name, p.data_type, p.min_value, p.max_value, p.null_count" +
+                ", p.distinct_count, p.avg_length, p.max_length, p.top_values, p.profiled_at FROM %1$s p" +
+                " JOIN (SELECT MAX(profiled_at) AS profiled_at FROM %1$s WHERE target_table = '%2$s') latest" +
+                " ON p.profiled_at = latest.profiled_at WHERE p.target_table = '%2$s'"
+                , ProfileGenerator.PROFILE_TABLE, targetTable);
+        logToConsole("loading profile for table", targetTable, sql);
+        List<List<Object>> profile = hpe.executeSingleStatement(sql, databaseName, container);
+        if(profile == null || profile.size() < 2) {
+            return false;
+        }
+        statsGrid.setContent(profile);
+        return true;
+    }
+
     void logToConsole(String... values){
         for(String string: values){
             consoleStringBuilder.append(string).append(": ");